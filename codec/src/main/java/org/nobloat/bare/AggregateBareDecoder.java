@@ -1,21 +1,50 @@
 package org.nobloat.bare;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class AggregateBareDecoder extends PrimitiveBareDecoder {
 
     public int MaxMapLength = 1000000000;
 
+    static final int PARALLEL_MIN_ITEMS = 256;
+
     public AggregateBareDecoder(InputStream inputStream) {
         super(inputStream);
     }
 
+    public AggregateBareDecoder(ByteBuffer buffer) {
+        super(buffer);
+    }
+
+    public AggregateBareDecoder(byte[] data) {
+        super(data);
+    }
+
+    private AggregateBareDecoder child(ByteBuffer buffer) {
+        var child = new AggregateBareDecoder(buffer);
+        child.MaxSliceLength = MaxSliceLength;
+        child.MaxMapLength = MaxMapLength;
+        child.ValidateUtf8 = ValidateUtf8;
+        return child;
+    }
+
     public <T> Optional<T> optional(DecodeFunction<T> itemDecoder) throws IOException, BareException {
         boolean exists = bool();
         if (exists) {
@@ -33,18 +62,139 @@ public class AggregateBareDecoder extends PrimitiveBareDecoder {
     }
 
     public <T> List<T> slice(DecodeFunction<T> itemDecoder) throws IOException, BareException {
-        var length = variadicUint().intValue();
+        return array(sliceLength(), itemDecoder);
+    }
+
+    /**
+     * Reads the slice length and returns an iterator decoding one item per call to {@code next()}.
+     * Items must be consumed before anything else is read from this decoder.
+     * Decoding failures are thrown as {@link java.io.UncheckedIOException} or {@link UncheckedBareException}.
+     */
+    public <T> Iterator<T> sliceIterator(DecodeFunction<T> itemDecoder) throws IOException, BareException {
+        return new DecodingIterator<>(this, sliceLength(), itemDecoder);
+    }
+
+    public <T> Stream<T> sliceStream(DecodeFunction<T> itemDecoder) throws IOException, BareException {
+        return stream(new DecodingIterator<>(this, sliceLength(), itemDecoder));
+    }
+
+    /**
+     * Decodes a slice of a buffer backed decoder in two passes: {@code itemSkipper} first records the offset of every
+     * item, then chunks of items are decoded in parallel on {@code pool}. Returns a fixed-size list in slice order.
+     */
+    public <T> List<T> parallelSlice(DecodeFunction<T> itemDecoder, SkipFunction itemSkipper, ForkJoinPool pool) throws IOException, BareException {
+        int length = sliceLength();
+        // every slice item takes at least one byte, check before sizing the offsets by the wire length
+        if (length > buffer().remaining()) {
+            throw new EOFException("Expected " + length + " slice items at position " + position() + ", only " + buffer().remaining() + " bytes remain");
+        }
+        var offsets = new int[length + 1];
+        for (int i = 0; i < length; i++) {
+            offsets[i] = position();
+            itemSkipper.apply(this);
+        }
+        offsets[length] = position();
+        return parallelArray(length, itemDecoder, pool, i -> offsets[i]);
+    }
+
+    public <T> List<T> parallelSlice(DecodeFunction<T> itemDecoder, SkipFunction itemSkipper) throws IOException, BareException {
+        return parallelSlice(itemDecoder, itemSkipper, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Like {@link #parallelSlice(DecodeFunction, SkipFunction, ForkJoinPool)} for items of a fixed encoded size,
+     * which need no offset pass.
+     */
+    public <T> List<T> parallelSlice(DecodeFunction<T> itemDecoder, int itemBytes, ForkJoinPool pool) throws IOException, BareException {
+        int length = sliceLength();
+        int start = position();
+        skip((long) length * itemBytes);
+        return parallelArray(length, itemDecoder, pool, i -> start + i * itemBytes);
+    }
+
+    public <T> List<T> parallelSlice(DecodeFunction<T> itemDecoder, int itemBytes) throws IOException, BareException {
+        return parallelSlice(itemDecoder, itemBytes, ForkJoinPool.commonPool());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> parallelArray(int length, DecodeFunction<T> itemDecoder, ForkJoinPool pool, IntUnaryOperator offset) throws IOException, BareException {
+        var source = buffer().source();
+        var result = new Object[length];
+        ParallelRangeTask.run(pool, length, PARALLEL_MIN_ITEMS, (from, to) -> {
+            var view = source.duplicate().clear();
+            var decoder = child(view.position(offset.applyAsInt(from)).limit(offset.applyAsInt(to)));
+            for (int i = from; i < to; i++) {
+                result[i] = itemDecoder.apply(decoder);
+            }
+        });
+        return (List<T>) Arrays.asList(result);
+    }
+
+    public short[] i16Array(int count) throws IOException {
+        in.require(count, Short.BYTES);
+        var result = new short[count];
+        in.readShorts(result, 0, count);
+        return result;
+    }
+
+    public int[] i32Array(int count) throws IOException {
+        in.require(count, Integer.BYTES);
+        var result = new int[count];
+        in.readInts(result, 0, count);
+        return result;
+    }
+
+    public long[] i64Array(int count) throws IOException {
+        in.require(count, Long.BYTES);
+        var result = new long[count];
+        in.readLongs(result, 0, count);
+        return result;
+    }
+
+    public float[] f32Array(int count) throws IOException {
+        in.require(count, Float.BYTES);
+        var result = new float[count];
+        in.readFloats(result, 0, count);
+        return result;
+    }
+
+    public double[] f64Array(int count) throws IOException {
+        in.require(count, Double.BYTES);
+        var result = new double[count];
+        in.readDoubles(result, 0, count);
+        return result;
+    }
+
+    public short[] i16Slice() throws IOException, BareException {
+        return i16Array(sliceLength());
+    }
+
+    public int[] i32Slice() throws IOException, BareException {
+        return i32Array(sliceLength());
+    }
+
+    public long[] i64Slice() throws IOException, BareException {
+        return i64Array(sliceLength());
+    }
+
+    public float[] f32Slice() throws IOException, BareException {
+        return f32Array(sliceLength());
+    }
+
+    public double[] f64Slice() throws IOException, BareException {
+        return f64Array(sliceLength());
+    }
+
+    private int sliceLength() throws IOException, BareException {
+        var length = variadicUintAsInt();
         if (length > MaxSliceLength) {
             throw new BareException(String.format("Decoding slice with entries %d > %d max length", length, MaxSliceLength));
         }
-        return array(length, itemDecoder);
+        return length;
     }
 
     public <K,V> Map<K,V> map(DecodeFunction<K> keyDecoder, DecodeFunction<V> valueDecoder) throws IOException, BareException {
-        var length = variadicUint().intValue();
-        if (length > MaxMapLength) {
-            throw new BareException(String.format("Decoding map with entries %d > %d max length", length, MaxSliceLength));
-        }
+        var length = mapLength();
         var result = new HashMap<K,V>();
         for (int i=0; i < length; i++) {
             result.put(keyDecoder.apply(this), valueDecoder.apply(this));
@@ -52,8 +202,75 @@ public class AggregateBareDecoder extends PrimitiveBareDecoder {
         return result;
     }
 
+    public <K,V> Iterator<Map.Entry<K,V>> mapIterator(DecodeFunction<K> keyDecoder, DecodeFunction<V> valueDecoder) throws IOException, BareException {
+        return new DecodingIterator<>(this, mapLength(), entryDecoder(keyDecoder, valueDecoder));
+    }
+
+    public <K,V> Stream<Map.Entry<K,V>> mapStream(DecodeFunction<K> keyDecoder, DecodeFunction<V> valueDecoder) throws IOException, BareException {
+        return stream(new DecodingIterator<>(this, mapLength(), entryDecoder(keyDecoder, valueDecoder)));
+    }
+
+    private static <K,V> DecodeFunction<Map.Entry<K,V>> entryDecoder(DecodeFunction<K> keyDecoder, DecodeFunction<V> valueDecoder) {
+        return decoder -> new AbstractMap.SimpleImmutableEntry<>(keyDecoder.apply(decoder), valueDecoder.apply(decoder));
+    }
+
+    // Deliberately not SIZED, otherwise count() would return without consuming the items from the input
+    private static <T> Stream<T> stream(Iterator<T> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private int mapLength() throws IOException, BareException {
+        var length = variadicUintAsInt();
+        if (length > MaxMapLength) {
+            throw new BareException(String.format("Decoding map with entries %d > %d max length", length, MaxMapLength));
+        }
+        return length;
+    }
+
+    public void skipOptional(SkipFunction itemSkipper) throws IOException, BareException {
+        if (bool()) {
+            itemSkipper.apply(this);
+        }
+    }
+
+    public void skipArray(int count, SkipFunction itemSkipper) throws IOException, BareException {
+        for (int i = 0; i < count; i++) {
+            itemSkipper.apply(this);
+        }
+    }
+
+    public void skipArray(int count, int elementBytes) throws IOException {
+        skip((long) count * elementBytes);
+    }
+
+    public void skipSlice(SkipFunction itemSkipper) throws IOException, BareException {
+        skipArray(sliceLength(), itemSkipper);
+    }
+
+    public void skipSlice(int elementBytes) throws IOException, BareException {
+        skipArray(sliceLength(), elementBytes);
+    }
+
+    public void skipMap(SkipFunction keySkipper, SkipFunction valueSkipper) throws IOException, BareException {
+        var length = mapLength();
+        for (int i = 0; i < length; i++) {
+            keySkipper.apply(this);
+            valueSkipper.apply(this);
+        }
+    }
+
+    public void skipUnion(Map<Integer, SkipFunction> skipFunctions) throws IOException, BareException {
+        int type = variadicUintAsInt();
+        var skipper = skipFunctions.get(type);
+
+        if (skipper == null) {
+            throw new BareException("Unknown union type: " + type);
+        }
+        skipper.apply(this);
+    }
+
     public Union union(Map<Integer, DecodeFunction> decodeFunctions) throws IOException, BareException {
-        int type = variadicUint().intValue();
+        int type = variadicUintAsInt();
         var decoder = decodeFunctions.get(type);
 
         if (decoder == null) {
@@ -67,4 +284,9 @@ public class AggregateBareDecoder extends PrimitiveBareDecoder {
         T apply(AggregateBareDecoder decoder) throws IOException, BareException;
     }
 
+    @FunctionalInterface
+    public interface SkipFunction {
+        void apply(AggregateBareDecoder decoder) throws IOException, BareException;
+    }
+
 }
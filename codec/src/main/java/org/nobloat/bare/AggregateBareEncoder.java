@@ -2,16 +2,42 @@ package org.nobloat.bare;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
 
 public class AggregateBareEncoder extends PrimitiveBareEncoder {
 
+    public int ParallelMinItems = 8192;
+
     public AggregateBareEncoder(OutputStream os) {
         super(os);
     }
 
+    public AggregateBareEncoder(OutputStream os, int bufferSize) {
+        super(os, bufferSize, true);
+    }
+
+    public AggregateBareEncoder(WritableByteChannel channel, int bufferSize) {
+        super(channel, bufferSize, true);
+    }
+
+    public AggregateBareEncoder(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public AggregateBareEncoder() {
+        super();
+    }
+
+    AggregateBareEncoder(int initialCapacity, boolean verifyInput) {
+        super(initialCapacity, verifyInput);
+    }
+
     public <T> void optional(Optional<T> value, EncodeFunction<T> encoder) throws IOException, BareException {
         if (value.isPresent()) {
             bool(true);
@@ -69,6 +95,51 @@ public class AggregateBareEncoder extends PrimitiveBareEncoder {
         }
     }
 
+    public void i16Array(short[] value) throws IOException {
+        os.writeShorts(value, 0, value.length);
+    }
+
+    public void i32Array(int[] value) throws IOException {
+        os.writeInts(value, 0, value.length);
+    }
+
+    public void i64Array(long[] value) throws IOException {
+        os.writeLongs(value, 0, value.length);
+    }
+
+    public void f32Array(float[] value) throws IOException {
+        os.writeFloats(value, 0, value.length);
+    }
+
+    public void f64Array(double[] value) throws IOException {
+        os.writeDoubles(value, 0, value.length);
+    }
+
+    public void i16Slice(short[] value) throws IOException, BareException {
+        variadicUInt(value.length);
+        i16Array(value);
+    }
+
+    public void i32Slice(int[] value) throws IOException, BareException {
+        variadicUInt(value.length);
+        i32Array(value);
+    }
+
+    public void i64Slice(long[] value) throws IOException, BareException {
+        variadicUInt(value.length);
+        i64Array(value);
+    }
+
+    public void f32Slice(float[] value) throws IOException, BareException {
+        variadicUInt(value.length);
+        f32Array(value);
+    }
+
+    public void f64Slice(double[] value) throws IOException, BareException {
+        variadicUInt(value.length);
+        f64Array(value);
+    }
+
     public <T> void slice(List<T> value, EncodeFunction<T> itemEncoder) throws IOException, BareException {
         variadicUInt(value.size());
         for (var item : value) {
@@ -84,6 +155,72 @@ public class AggregateBareEncoder extends PrimitiveBareEncoder {
         }
     }
 
+    public <T> void parallelSlice(List<T> value, ParallelEncoder.MessageEncoder<T> itemEncoder) throws IOException, BareException {
+        parallelSlice(value, itemEncoder, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Encodes a slice like {@link #slice(List, EncodeFunction)}, but splits slices of at least {@link #ParallelMinItems}
+     * items into chunks that are encoded into separate buffers on {@code pool} and then appended in order.
+     * The result is identical to the serial encoding.
+     */
+    public <T> void parallelSlice(List<T> value, ParallelEncoder.MessageEncoder<T> itemEncoder, ForkJoinPool pool) throws IOException, BareException {
+        if (value.size() < ParallelMinItems) {
+            slice(value, item -> itemEncoder.encode(item, this));
+            return;
+        }
+        variadicUInt(value.size());
+        var items = value instanceof RandomAccess ? value : new ArrayList<>(value);
+        encodeChunks(items.size(), pool, (encoder, i) -> itemEncoder.encode(items.get(i), encoder));
+    }
+
+    public <K,V> void parallelMap(Map<K,V> values, ParallelEncoder.MessageEncoder<K> keyEncoder, ParallelEncoder.MessageEncoder<V> valueEncoder) throws IOException, BareException {
+        parallelMap(values, keyEncoder, valueEncoder, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Encodes a map like {@link #map(Map, EncodeFunction, EncodeFunction)}, in chunks on {@code pool} for maps of at
+     * least {@link #ParallelMinItems} entries. Entries are written in iteration order.
+     */
+    public <K,V> void parallelMap(Map<K,V> values, ParallelEncoder.MessageEncoder<K> keyEncoder, ParallelEncoder.MessageEncoder<V> valueEncoder, ForkJoinPool pool) throws IOException, BareException {
+        if (values.size() < ParallelMinItems) {
+            map(values, key -> keyEncoder.encode(key, this), value -> valueEncoder.encode(value, this));
+            return;
+        }
+        variadicUInt(values.size());
+        var entries = new ArrayList<>(values.entrySet());
+        encodeChunks(entries.size(), pool, (encoder, i) -> {
+            var entry = entries.get(i);
+            keyEncoder.encode(entry.getKey(), encoder);
+            valueEncoder.encode(entry.getValue(), encoder);
+        });
+    }
+
+    private void encodeChunks(int count, ForkJoinPool pool, IndexEncoder indexEncoder) throws IOException, BareException {
+        if (count < ParallelMinItems) {
+            for (int i = 0; i < count; i++) {
+                indexEncoder.encode(this, i);
+            }
+            return;
+        }
+        int chunkSize = Math.max(ParallelMinItems / 8, Math.floorDiv(count, pool.getParallelism() * 4) + 1);
+        var chunks = new AggregateBareEncoder[(count + chunkSize - 1) / chunkSize];
+        ParallelRangeTask.run(pool, chunks.length, 1, (from, to) -> {
+            for (int c = from; c < to; c++) {
+                var encoder = new AggregateBareEncoder(DEFAULT_BUFFER_SIZE, verifyInput);
+                encoder.ParallelMinItems = Integer.MAX_VALUE;
+                for (int i = c * chunkSize, end = Math.min(count, i + chunkSize); i < end; i++) {
+                    indexEncoder.encode(encoder, i);
+                }
+                chunks[c] = encoder;
+            }
+        });
+        for (var chunk : chunks) {
+            var buffer = (BareOutput.Buffer) chunk.os;
+            os.write(buffer.buffer, 0, buffer.count);
+        }
+    }
+
     public void union(Union value, Map<Integer, EncodeFunction> encodeFunctions) throws IOException, BareException {
         var encoder = encodeFunctions.get((value.type()));
         if (encoder == null) {
@@ -97,4 +234,9 @@ public class AggregateBareEncoder extends PrimitiveBareEncoder {
     public interface EncodeFunction<T> {
         void apply(T value) throws IOException, BareException;
     }
+
+    @FunctionalInterface
+    private interface IndexEncoder {
+        void encode(AggregateBareEncoder encoder, int index) throws IOException, BareException;
+    }
 }
@@ -0,0 +1,364 @@
+package org.nobloat.bare;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Byte source of a {@link PrimitiveBareDecoder}. Multi-byte reads are always little endian.
+ */
+abstract class BareInput {
+
+    abstract byte readByte() throws IOException;
+
+    abstract short readShort() throws IOException;
+
+    abstract int readInt() throws IOException;
+
+    abstract long readLong() throws IOException;
+
+    abstract void readFully(byte[] target, int offset, int length) throws IOException;
+
+    abstract void skip(long length) throws IOException;
+
+    abstract String readString(int length, boolean validate) throws IOException, BareException;
+
+    abstract void readShorts(short[] target, int offset, int length) throws IOException;
+
+    abstract void readInts(int[] target, int offset, int length) throws IOException;
+
+    abstract void readLongs(long[] target, int offset, int length) throws IOException;
+
+    abstract void readFloats(float[] target, int offset, int length) throws IOException;
+
+    abstract void readDoubles(double[] target, int offset, int length) throws IOException;
+
+    /**
+     * Fails if fewer than {@code elements} values of {@code elementBytes} each remain, so that lengths read from the
+     * input can be checked before allocating for them. Streams do not know what remains and accept any count.
+     */
+    void require(int elements, int elementBytes) throws EOFException {
+    }
+
+    /**
+     * Reads from an {@link InputStream} without reading ahead, so the stream can be shared with other readers.
+     */
+    static final class Stream extends BareInput {
+        private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+        private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+        private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+        private static final VarHandle FLOAT = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.LITTLE_ENDIAN);
+        private static final VarHandle DOUBLE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+        private static final int CHUNK_SIZE = 8192;
+
+        private InputStream is;
+        private final byte[] scratch = new byte[Long.BYTES];
+        private byte[] chunk;
+
+        Stream(InputStream is) {
+            this.is = is;
+        }
+
+        void reset(InputStream is) {
+            this.is = is;
+        }
+
+        @Override
+        byte readByte() throws IOException {
+            int b = is.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            return (byte) b;
+        }
+
+        private void readFully(byte[] target, int length) throws IOException {
+            readFully(target, 0, length);
+        }
+
+        @Override
+        short readShort() throws IOException {
+            readFully(scratch, Short.BYTES);
+            return (short) SHORT.get(scratch, 0);
+        }
+
+        @Override
+        int readInt() throws IOException {
+            readFully(scratch, Integer.BYTES);
+            return (int) INT.get(scratch, 0);
+        }
+
+        @Override
+        long readLong() throws IOException {
+            readFully(scratch, Long.BYTES);
+            return (long) LONG.get(scratch, 0);
+        }
+
+        @Override
+        void readFully(byte[] target, int offset, int length) throws IOException {
+            while (length > 0) {
+                int read = is.read(target, offset, length);
+                if (read < 0) {
+                    throw new EOFException();
+                }
+                offset += read;
+                length -= read;
+            }
+        }
+
+        @Override
+        void skip(long length) throws IOException {
+            while (length > 0) {
+                long skipped = is.skip(length);
+                if (skipped <= 0) {
+                    readByte();
+                    skipped = 1;
+                }
+                length -= skipped;
+            }
+        }
+
+        @Override
+        String readString(int length, boolean validate) throws IOException, BareException {
+            byte[] target = length <= CHUNK_SIZE ? chunk() : new byte[length];
+            readFully(target, length);
+            return Utf8.decode(target, 0, length, validate);
+        }
+
+        private byte[] chunk() {
+            if (chunk == null) {
+                chunk = new byte[CHUNK_SIZE];
+            }
+            return chunk;
+        }
+
+        private int fill(int elementBytes, int elements) throws IOException {
+            int count = Math.min(elements, CHUNK_SIZE / elementBytes);
+            readFully(chunk(), count * elementBytes);
+            return count;
+        }
+
+        @Override
+        void readShorts(short[] target, int offset, int length) throws IOException {
+            while (length > 0) {
+                int count = fill(Short.BYTES, length);
+                for (int i = 0; i < count; i++) {
+                    target[offset + i] = (short) SHORT.get(chunk, i * Short.BYTES);
+                }
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        void readInts(int[] target, int offset, int length) throws IOException {
+            while (length > 0) {
+                int count = fill(Integer.BYTES, length);
+                for (int i = 0; i < count; i++) {
+                    target[offset + i] = (int) INT.get(chunk, i * Integer.BYTES);
+                }
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        void readLongs(long[] target, int offset, int length) throws IOException {
+            while (length > 0) {
+                int count = fill(Long.BYTES, length);
+                for (int i = 0; i < count; i++) {
+                    target[offset + i] = (long) LONG.get(chunk, i * Long.BYTES);
+                }
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        void readFloats(float[] target, int offset, int length) throws IOException {
+            while (length > 0) {
+                int count = fill(Float.BYTES, length);
+                for (int i = 0; i < count; i++) {
+                    target[offset + i] = (float) FLOAT.get(chunk, i * Float.BYTES);
+                }
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        void readDoubles(double[] target, int offset, int length) throws IOException {
+            while (length > 0) {
+                int count = fill(Double.BYTES, length);
+                for (int i = 0; i < count; i++) {
+                    target[offset + i] = (double) DOUBLE.get(chunk, i * Double.BYTES);
+                }
+                offset += count;
+                length -= count;
+            }
+        }
+    }
+
+    /**
+     * Reads a heap or direct {@link ByteBuffer} with absolute accesses between its position and limit.
+     * Neither position nor byte order of the given buffer are modified.
+     */
+    static final class Buffer extends BareInput {
+        private static final VarHandle SHORT = MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+        private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+        private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+        private static final int SCRATCH_SIZE = 8192;
+
+        private ByteBuffer buffer;
+        private ByteBuffer view;
+        private byte[] scratch;
+        private int position;
+        private int limit;
+
+        Buffer(ByteBuffer buffer) {
+            reset(buffer);
+        }
+
+        void reset(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.view = null;
+            this.position = buffer.position();
+            this.limit = buffer.limit();
+        }
+
+        ByteBuffer source() {
+            return buffer;
+        }
+
+        int position() {
+            return position;
+        }
+
+        int remaining() {
+            return limit - position;
+        }
+
+        void position(int position) {
+            if (position < 0 || position > limit) {
+                throw new IndexOutOfBoundsException("Position " + position + " outside of buffer limit " + limit);
+            }
+            this.position = position;
+        }
+
+        private int advance(int length) throws EOFException {
+            int current = position;
+            if (limit - current < length) {
+                throw new EOFException("Expected " + length + " bytes at position " + current + ", buffer limit is " + limit);
+            }
+            position = current + length;
+            return current;
+        }
+
+        @Override
+        void require(int elements, int elementBytes) throws EOFException {
+            if (elements > (limit - position) / elementBytes) {
+                throw new EOFException("Expected " + elements + " elements of " + elementBytes + " bytes at position " + position + ", buffer limit is " + limit);
+            }
+        }
+
+        private ByteBuffer bulk(int elements, int elementBytes) throws EOFException {
+            require(elements, elementBytes);
+            int start = advance(elements * elementBytes);
+            return view().position(start);
+        }
+
+        private ByteBuffer view() {
+            if (view == null) {
+                view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return view;
+        }
+
+        @Override
+        byte readByte() throws IOException {
+            return buffer.get(advance(Byte.BYTES));
+        }
+
+        @Override
+        short readShort() throws IOException {
+            return (short) SHORT.get(buffer, advance(Short.BYTES));
+        }
+
+        @Override
+        int readInt() throws IOException {
+            return (int) INT.get(buffer, advance(Integer.BYTES));
+        }
+
+        @Override
+        long readLong() throws IOException {
+            return (long) LONG.get(buffer, advance(Long.BYTES));
+        }
+
+        @Override
+        void readFully(byte[] target, int offset, int length) throws IOException {
+            int start = advance(length);
+            if (buffer.hasArray()) {
+                System.arraycopy(buffer.array(), buffer.arrayOffset() + start, target, offset, length);
+            } else {
+                view().position(start);
+                view.get(target, offset, length);
+            }
+        }
+
+        @Override
+        void skip(long length) throws IOException {
+            if (length > limit - position) {
+                throw new EOFException("Expected " + length + " bytes at position " + position + ", buffer limit is " + limit);
+            }
+            position += (int) length;
+        }
+
+        @Override
+        String readString(int length, boolean validate) throws IOException, BareException {
+            if (buffer.hasArray()) {
+                int start = advance(length);
+                return Utf8.decode(buffer.array(), buffer.arrayOffset() + start, length, validate);
+            }
+            if (length > SCRATCH_SIZE) {
+                var target = new byte[length];
+                readFully(target, 0, length);
+                return Utf8.decode(target, 0, length, validate);
+            }
+            if (scratch == null) {
+                scratch = new byte[SCRATCH_SIZE];
+            }
+            readFully(scratch, 0, length);
+            return Utf8.decode(scratch, 0, length, validate);
+        }
+
+        @Override
+        void readShorts(short[] target, int offset, int length) throws IOException {
+            bulk(length, Short.BYTES).asShortBuffer().get(target, offset, length);
+        }
+
+        @Override
+        void readInts(int[] target, int offset, int length) throws IOException {
+            bulk(length, Integer.BYTES).asIntBuffer().get(target, offset, length);
+        }
+
+        @Override
+        void readLongs(long[] target, int offset, int length) throws IOException {
+            bulk(length, Long.BYTES).asLongBuffer().get(target, offset, length);
+        }
+
+        @Override
+        void readFloats(float[] target, int offset, int length) throws IOException {
+            bulk(length, Float.BYTES).asFloatBuffer().get(target, offset, length);
+        }
+
+        @Override
+        void readDoubles(double[] target, int offset, int length) throws IOException {
+            bulk(length, Double.BYTES).asDoubleBuffer().get(target, offset, length);
+        }
+    }
+}
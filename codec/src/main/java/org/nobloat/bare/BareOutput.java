@@ -0,0 +1,550 @@
+package org.nobloat.bare;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Byte sink of a {@link PrimitiveBareEncoder}. Multi-byte writes are always little endian.
+ */
+abstract class BareOutput {
+
+    static final int MAX_VARINT_BYTES = 10;
+    static final int CHUNK_SIZE = 8192;
+
+    static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle FLOAT = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle DOUBLE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+
+    abstract void writeByte(int b) throws IOException;
+
+    abstract void writeShort(short value) throws IOException;
+
+    abstract void writeInt(int value) throws IOException;
+
+    abstract void writeLong(long value) throws IOException;
+
+    abstract void write(byte[] source, int offset, int length) throws IOException;
+
+    /**
+     * Writes the remaining bytes of {@code source} without changing its position.
+     */
+    void write(ByteBuffer source) throws IOException {
+        if (source.hasArray()) {
+            write(source.array(), source.arrayOffset() + source.position(), source.remaining());
+            return;
+        }
+        var view = source.duplicate();
+        while (view.hasRemaining()) {
+            int count = claim(Byte.BYTES, view.remaining());
+            view.get(chunk(), chunkPosition(), count);
+            commit(count);
+        }
+    }
+
+    /**
+     * Writes the unsigned varint representation of {@code value}, treating all 64 bits as unsigned.
+     */
+    abstract int writeVarint(long value) throws IOException;
+
+    abstract void flush() throws IOException;
+
+    /**
+     * Makes room for up to {@code elements} values of {@code elementBytes} each in {@link #chunk()}, starting at
+     * {@link #chunkPosition()}, and returns how many of them fit. At least one always fits.
+     */
+    abstract int claim(int elementBytes, int elements) throws IOException;
+
+    abstract byte[] chunk();
+
+    abstract int chunkPosition();
+
+    abstract void commit(int length) throws IOException;
+
+    /**
+     * Writes the UTF-8 representation of {@code s}, which must be {@code encodedLength} bytes long.
+     */
+    void writeUtf8(String s, int encodedLength) throws IOException {
+        int index = 0;
+        int length = s.length();
+        int remaining = encodedLength;
+        while (index < length) {
+            int room = claim(Utf8.MAX_BYTES_PER_CHAR, (remaining + Utf8.MAX_BYTES_PER_CHAR - 1) / Utf8.MAX_BYTES_PER_CHAR) * Utf8.MAX_BYTES_PER_CHAR;
+            byte[] target = chunk();
+            int start = chunkPosition();
+            int position = start;
+            int end = start + room;
+            while (index < length && position < end) {
+                char c = s.charAt(index);
+                if (c >= 0x80) {
+                    break;
+                }
+                target[position++] = (byte) c;
+                index++;
+            }
+            while (index < length && position + Utf8.MAX_BYTES_PER_CHAR <= end) {
+                char c = s.charAt(index++);
+                if (c < 0x80) {
+                    target[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    target[position++] = (byte) (0xC0 | c >> 6);
+                    target[position++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && index < length && Character.isLowSurrogate(s.charAt(index))) {
+                    int codePoint = Character.toCodePoint(c, s.charAt(index++));
+                    target[position++] = (byte) (0xF0 | codePoint >> 18);
+                    target[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    target[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    target[position++] = (byte) (0x80 | codePoint & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    target[position++] = '?';
+                } else {
+                    target[position++] = (byte) (0xE0 | c >> 12);
+                    target[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    target[position++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+            commit(position - start);
+            remaining -= position - start;
+        }
+    }
+
+    void writeShorts(short[] source, int offset, int length) throws IOException {
+        while (length > 0) {
+            int count = claim(Short.BYTES, length);
+            byte[] target = chunk();
+            int position = chunkPosition();
+            for (int i = 0; i < count; i++) {
+                SHORT.set(target, position + i * Short.BYTES, source[offset + i]);
+            }
+            commit(count * Short.BYTES);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    void writeInts(int[] source, int offset, int length) throws IOException {
+        while (length > 0) {
+            int count = claim(Integer.BYTES, length);
+            byte[] target = chunk();
+            int position = chunkPosition();
+            for (int i = 0; i < count; i++) {
+                INT.set(target, position + i * Integer.BYTES, source[offset + i]);
+            }
+            commit(count * Integer.BYTES);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    void writeLongs(long[] source, int offset, int length) throws IOException {
+        while (length > 0) {
+            int count = claim(Long.BYTES, length);
+            byte[] target = chunk();
+            int position = chunkPosition();
+            for (int i = 0; i < count; i++) {
+                LONG.set(target, position + i * Long.BYTES, source[offset + i]);
+            }
+            commit(count * Long.BYTES);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    void writeFloats(float[] source, int offset, int length) throws IOException {
+        while (length > 0) {
+            int count = claim(Float.BYTES, length);
+            byte[] target = chunk();
+            int position = chunkPosition();
+            for (int i = 0; i < count; i++) {
+                FLOAT.set(target, position + i * Float.BYTES, source[offset + i]);
+            }
+            commit(count * Float.BYTES);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    void writeDoubles(double[] source, int offset, int length) throws IOException {
+        while (length > 0) {
+            int count = claim(Double.BYTES, length);
+            byte[] target = chunk();
+            int position = chunkPosition();
+            for (int i = 0; i < count; i++) {
+                DOUBLE.set(target, position + i * Double.BYTES, source[offset + i]);
+            }
+            commit(count * Double.BYTES);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    static int putVarint(byte[] target, int offset, long value) {
+        int i = offset;
+        while ((value & ~0x7FL) != 0) {
+            target[i++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        target[i++] = (byte) value;
+        return i - offset;
+    }
+
+    /**
+     * Writes every primitive straight through to an {@link OutputStream}, assembling it in a scratch array first.
+     */
+    static final class Stream extends BareOutput {
+        private OutputStream os;
+        private final byte[] scratch = new byte[MAX_VARINT_BYTES];
+        private byte[] chunk;
+
+        Stream(OutputStream os) {
+            this.os = os;
+        }
+
+        void reset(OutputStream os) {
+            this.os = os;
+        }
+
+        @Override
+        void writeByte(int b) throws IOException {
+            os.write(b);
+        }
+
+        @Override
+        void writeShort(short value) throws IOException {
+            SHORT.set(scratch, 0, value);
+            os.write(scratch, 0, Short.BYTES);
+        }
+
+        @Override
+        void writeInt(int value) throws IOException {
+            INT.set(scratch, 0, value);
+            os.write(scratch, 0, Integer.BYTES);
+        }
+
+        @Override
+        void writeLong(long value) throws IOException {
+            LONG.set(scratch, 0, value);
+            os.write(scratch, 0, Long.BYTES);
+        }
+
+        @Override
+        void write(byte[] source, int offset, int length) throws IOException {
+            os.write(source, offset, length);
+        }
+
+        @Override
+        int writeVarint(long value) throws IOException {
+            int length = putVarint(scratch, 0, value);
+            os.write(scratch, 0, length);
+            return length;
+        }
+
+        @Override
+        void flush() throws IOException {
+            os.flush();
+        }
+
+        @Override
+        int claim(int elementBytes, int elements) {
+            if (chunk == null) {
+                chunk = new byte[CHUNK_SIZE];
+            }
+            return Math.min(elements, CHUNK_SIZE / elementBytes);
+        }
+
+        @Override
+        byte[] chunk() {
+            return chunk;
+        }
+
+        @Override
+        int chunkPosition() {
+            return 0;
+        }
+
+        @Override
+        void commit(int length) throws IOException {
+            os.write(chunk, 0, length);
+        }
+    }
+
+    /**
+     * Collects bytes in a reusable array. Without a sink the array grows as needed, with a sink it is
+     * drained whenever it is full and on {@link #flush()}.
+     */
+    static final class Buffer extends BareOutput {
+        private OutputStream sink;
+        byte[] buffer;
+        int count;
+
+        Buffer(int capacity, OutputStream sink) {
+            this.buffer = new byte[Math.max(capacity, 2 * MAX_VARINT_BYTES)];
+            this.sink = sink;
+        }
+
+        void reset(OutputStream sink) {
+            this.sink = sink;
+            this.count = 0;
+        }
+
+        private int reserve(int length) throws IOException {
+            if (buffer.length - count < length) {
+                if (sink != null) {
+                    drain();
+                } else {
+                    buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, count + length));
+                }
+            }
+            int position = count;
+            count += length;
+            return position;
+        }
+
+        private void drain() throws IOException {
+            sink.write(buffer, 0, count);
+            count = 0;
+        }
+
+        @Override
+        void writeByte(int b) throws IOException {
+            int position = reserve(Byte.BYTES);
+            buffer[position] = (byte) b;
+        }
+
+        @Override
+        void writeShort(short value) throws IOException {
+            int position = reserve(Short.BYTES);
+            SHORT.set(buffer, position, value);
+        }
+
+        @Override
+        void writeInt(int value) throws IOException {
+            int position = reserve(Integer.BYTES);
+            INT.set(buffer, position, value);
+        }
+
+        @Override
+        void writeLong(long value) throws IOException {
+            int position = reserve(Long.BYTES);
+            LONG.set(buffer, position, value);
+        }
+
+        @Override
+        void write(byte[] source, int offset, int length) throws IOException {
+            if (sink != null && length > buffer.length - count) {
+                drain();
+                if (length > buffer.length) {
+                    sink.write(source, offset, length);
+                    return;
+                }
+            }
+            int position = reserve(length);
+            System.arraycopy(source, offset, buffer, position, length);
+        }
+
+        @Override
+        int writeVarint(long value) throws IOException {
+            reserve(MAX_VARINT_BYTES);
+            count -= MAX_VARINT_BYTES;
+            int length = putVarint(buffer, count, value);
+            count += length;
+            return length;
+        }
+
+        @Override
+        void flush() throws IOException {
+            if (sink != null) {
+                drain();
+                sink.flush();
+            }
+        }
+
+        @Override
+        int claim(int elementBytes, int elements) throws IOException {
+            if (sink == null) {
+                long required = (long) elements * elementBytes;
+                if (buffer.length - count < required) {
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(buffer.length << 1, count + required)));
+                }
+            } else if (buffer.length - count < elementBytes) {
+                drain();
+            }
+            return Math.min(elements, (buffer.length - count) / elementBytes);
+        }
+
+        @Override
+        byte[] chunk() {
+            return buffer;
+        }
+
+        @Override
+        int chunkPosition() {
+            return count;
+        }
+
+        @Override
+        void commit(int length) {
+            count += length;
+        }
+
+        void writeTo(OutputStream os) throws IOException {
+            os.write(buffer, 0, count);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, count);
+        }
+    }
+
+    /**
+     * Collects bytes in a direct buffer and writes it to a channel when full and on {@link #flush()}. Writes of at
+     * least half the buffer size are not copied but passed along with the buffered bytes in one gathering write if
+     * the channel is a {@link GatheringByteChannel}. The channel must be in blocking mode.
+     */
+    static final class Channel extends BareOutput {
+        private WritableByteChannel channel;
+        private final ByteBuffer buffer;
+        private final ByteBuffer[] gather = new ByteBuffer[2];
+        private final int directThreshold;
+        private byte[] chunk;
+
+        Channel(WritableByteChannel channel, int capacity) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(Math.max(capacity, 2 * MAX_VARINT_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+            this.directThreshold = buffer.capacity() / 2;
+            this.gather[0] = buffer;
+        }
+
+        void reset(WritableByteChannel channel) {
+            this.channel = channel;
+            buffer.clear();
+        }
+
+        private void reserve(int length) throws IOException {
+            if (buffer.remaining() < length) {
+                drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        void writeByte(int b) throws IOException {
+            reserve(Byte.BYTES);
+            buffer.put((byte) b);
+        }
+
+        @Override
+        void writeShort(short value) throws IOException {
+            reserve(Short.BYTES);
+            buffer.putShort(value);
+        }
+
+        @Override
+        void writeInt(int value) throws IOException {
+            reserve(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        @Override
+        void writeLong(long value) throws IOException {
+            reserve(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        @Override
+        void write(byte[] source, int offset, int length) throws IOException {
+            if (length >= directThreshold) {
+                writeDirect(ByteBuffer.wrap(source, offset, length));
+                return;
+            }
+            reserve(length);
+            buffer.put(source, offset, length);
+        }
+
+        @Override
+        void write(ByteBuffer source) throws IOException {
+            if (source.remaining() >= directThreshold) {
+                writeDirect(source.duplicate());
+                return;
+            }
+            reserve(source.remaining());
+            buffer.put(source.duplicate());
+        }
+
+        private void writeDirect(ByteBuffer source) throws IOException {
+            if (channel instanceof GatheringByteChannel) {
+                buffer.flip();
+                gather[1] = source;
+                try {
+                    while (source.hasRemaining()) {
+                        ((GatheringByteChannel) channel).write(gather);
+                    }
+                } finally {
+                    gather[1] = null;
+                }
+                buffer.clear();
+                return;
+            }
+            drain();
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        }
+
+        @Override
+        int writeVarint(long value) throws IOException {
+            reserve(MAX_VARINT_BYTES);
+            int length = 1;
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) (value | 0x80));
+                value >>>= 7;
+                length++;
+            }
+            buffer.put((byte) value);
+            return length;
+        }
+
+        @Override
+        void flush() throws IOException {
+            drain();
+        }
+
+        @Override
+        int claim(int elementBytes, int elements) {
+            if (chunk == null) {
+                chunk = new byte[CHUNK_SIZE];
+            }
+            return Math.min(elements, CHUNK_SIZE / elementBytes);
+        }
+
+        @Override
+        byte[] chunk() {
+            return chunk;
+        }
+
+        @Override
+        int chunkPosition() {
+            return 0;
+        }
+
+        @Override
+        void commit(int length) throws IOException {
+            write(chunk, 0, length);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.nobloat.bare;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a type for the annotation processor of the {@code processor} module, which generates a {@code <Type>Codec}
+ * class with static {@code decode}, {@code skip} and {@code encode} methods at compile time. Structs use the type
+ * mappings of {@link ReflectiveBareDecoder}, enums are mapped by their {@code value} field.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Codec {
+
+    /**
+     * Makes the annotated type a tagged union of the given subtypes, each annotated with {@link Union.Id} and
+     * {@link Codec}.
+     */
+    Class<?>[] union() default {};
+}
@@ -0,0 +1,67 @@
+package org.nobloat.bare;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free pool of reusable decoders or encoders. Slots are striped by thread so that concurrent threads rarely
+ * touch the same cache line. Acquired instances must be bound with {@code reset(...)} before use.
+ */
+public final class CodecPool<T> {
+
+    private static final int STRIDE = 16;
+
+    private final Supplier<T> factory;
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final int slotsPerStripe;
+
+    public CodecPool(Supplier<T> factory, int stripes, int slotsPerStripe) {
+        if (stripes < 1 || slotsPerStripe < 1 || slotsPerStripe > STRIDE) {
+            throw new IllegalArgumentException("stripes must be positive and slotsPerStripe between 1 and " + STRIDE);
+        }
+        int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.factory = factory;
+        this.slots = new AtomicReferenceArray<>(size * STRIDE);
+        this.mask = size - 1;
+        this.slotsPerStripe = slotsPerStripe;
+    }
+
+    public CodecPool(Supplier<T> factory) {
+        this(factory, 2 * Runtime.getRuntime().availableProcessors(), 4);
+    }
+
+    public static CodecPool<AggregateBareDecoder> decoders() {
+        return new CodecPool<>(() -> new AggregateBareDecoder(new byte[0]));
+    }
+
+    public static CodecPool<AggregateBareEncoder> encoders() {
+        return new CodecPool<>(AggregateBareEncoder::new);
+    }
+
+    public T acquire() {
+        int base = stripe();
+        for (int i = base; i < base + slotsPerStripe; i++) {
+            T instance = slots.get(i);
+            if (instance != null && slots.compareAndSet(i, instance, null)) {
+                return instance;
+            }
+        }
+        return factory.get();
+    }
+
+    public void release(T instance) {
+        int base = stripe();
+        for (int i = base; i < base + slotsPerStripe; i++) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, instance)) {
+                return;
+            }
+        }
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return ((hash ^ (hash >>> 16)) & mask) * STRIDE;
+    }
+}
@@ -0,0 +1,304 @@
+package org.nobloat.bare;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * How {@link ReflectiveBareDecoder} decodes one class, resolved once per class and cached in a {@link ClassValue}.
+ * Instance fields of structs are set through method handles and each field has its reader picked upfront, so
+ * decoding a struct does no reflection and no type name comparisons. Records are decoded component by component and
+ * passed to their canonical constructor. Reflective failures are kept and thrown when the plan is used.
+ */
+final class DecodePlan {
+
+    private static final ClassValue<DecodePlan> PLANS = new ClassValue<>() {
+        @Override
+        protected DecodePlan computeValue(Class<?> type) {
+            return new DecodePlan(type);
+        }
+    };
+
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType CONSTRUCTOR = MethodType.methodType(Object.class);
+    private static final MethodType RECORD_CONSTRUCTOR = MethodType.methodType(Object.class, Object[].class);
+
+    private final Class<?> type;
+    private Reader primitive;
+    private Map<Integer, Object> constants;
+    private MethodHandle constructor;
+    private MethodHandle recordConstructor;
+    private FieldPlan[] fields;
+    private ReflectiveOperationException failure;
+
+    private DecodePlan(Class<?> type) {
+        this.type = type;
+        try {
+            primitive = primitiveReader(type);
+            if (primitive == null && type.isEnum()) {
+                constants = enumConstants(type);
+            } else if (primitive == null && isRecord(type)) {
+                resolveRecord(type);
+            } else if (primitive == null) {
+                resolveStruct(type);
+            }
+        } catch (ReflectiveOperationException e) {
+            failure = e;
+        }
+    }
+
+    static DecodePlan of(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    Object decode(ReflectiveBareDecoder decoder) throws IOException, ReflectiveOperationException, BareException {
+        if (primitive != null) {
+            return primitive.read(decoder);
+        }
+        return type.isEnum() ? decodeEnum(decoder) : decodeStruct(decoder);
+    }
+
+    Object decodePrimitive(ReflectiveBareDecoder decoder) throws IOException, BareException {
+        if (primitive == null) {
+            throw new UnsupportedOperationException("readType not implemented for " + type.getName());
+        }
+        return primitive.read(decoder);
+    }
+
+    Object decodeEnum(ReflectiveBareDecoder decoder) throws IOException, ReflectiveOperationException, BareException {
+        checkFailure();
+        if (constants == null) {
+            throw new IllegalArgumentException(type.getName() + " is not an enum");
+        }
+        int value = decoder.variadicUintAsInt();
+        var constant = constants.get(value);
+        if (constant == null) {
+            throw new BareException("Unexpected enum value: " + value);
+        }
+        return constant;
+    }
+
+    Object decodeStruct(ReflectiveBareDecoder decoder) throws IOException, ReflectiveOperationException, BareException {
+        checkFailure();
+        if (recordConstructor != null) {
+            return decodeRecord(decoder);
+        }
+        if (constructor == null) {
+            throw new NoSuchMethodException(type.getName() + " is not a struct");
+        }
+        try {
+            Object result = (Object) constructor.invokeExact();
+            for (var field : fields) {
+                Object value = field.reader.read(decoder, result);
+                field.setter.invokeExact(result, value);
+            }
+            return result;
+        } catch (IOException | BareException | ReflectiveOperationException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    private Object decodeRecord(ReflectiveBareDecoder decoder) throws IOException, ReflectiveOperationException, BareException {
+        var values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            values[i] = fields[i].reader.read(decoder, null);
+        }
+        try {
+            return (Object) recordConstructor.invokeExact(values);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    private void checkFailure() throws ReflectiveOperationException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static Reader primitiveReader(Class<?> type) {
+        if (type == Boolean.class || type == boolean.class) {
+            return decoder -> decoder.bool();
+        } else if (type == Byte.class || type == byte.class) {
+            return decoder -> decoder.i8();
+        } else if (type == Float.class || type == float.class) {
+            return decoder -> decoder.f32();
+        } else if (type == Double.class || type == double.class) {
+            return decoder -> decoder.f64();
+        } else if (type == String.class) {
+            return PrimitiveBareDecoder::string;
+        }
+        return null;
+    }
+
+    private static Map<Integer, Object> enumConstants(Class<?> type) throws ReflectiveOperationException {
+        var valueField = type.getField("value");
+        var result = new HashMap<Integer, Object>();
+        for (var constant : type.getEnumConstants()) {
+            result.putIfAbsent((int) valueField.get(constant), constant);
+        }
+        return result;
+    }
+
+    private void resolveStruct(Class<?> type) throws ReflectiveOperationException {
+        var lookup = MethodHandles.lookup();
+        var resolved = new ArrayList<FieldPlan>();
+        for (var field : type.getFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            field.setAccessible(true);
+            resolved.add(new FieldPlan(lookup.unreflectSetter(field).asType(SETTER), fieldReader(lookup, field)));
+        }
+        var declared = type.getConstructor();
+        declared.setAccessible(true);
+        constructor = lookup.unreflectConstructor(declared).asType(CONSTRUCTOR);
+        fields = resolved.toArray(new FieldPlan[0]);
+    }
+
+    /**
+     * Records have no setters, components are decoded in order into an array spread over the canonical constructor.
+     */
+    private void resolveRecord(Class<?> type) throws ReflectiveOperationException {
+        var lookup = MethodHandles.lookup();
+        var components = recordComponents(type);
+        var resolved = new FieldPlan[components.length];
+        var parameterTypes = new Class<?>[components.length];
+        for (int i = 0; i < components.length; i++) {
+            resolved[i] = new FieldPlan(null, fieldReader(lookup, components[i]));
+            parameterTypes[i] = components[i].getType();
+        }
+        var canonical = type.getDeclaredConstructor(parameterTypes);
+        canonical.setAccessible(true);
+        recordConstructor = lookup.unreflectConstructor(canonical).asSpreader(Object[].class, components.length).asType(RECORD_CONSTRUCTOR);
+        fields = resolved;
+    }
+
+    static boolean isRecord(Class<?> type) {
+        return type.getSuperclass() != null && type.getSuperclass().getName().equals("java.lang.Record");
+    }
+
+    /**
+     * Returns the fields backing the record components of {@code type} in declaration order. Annotations like
+     * {@link Int} on a component are propagated to its field. {@code Class.getRecordComponents()} is called
+     * reflectively as the codec targets Java 11.
+     */
+    static Field[] recordComponents(Class<?> type) throws ReflectiveOperationException {
+        var components = (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+        var result = new Field[components.length];
+        for (int i = 0; i < components.length; i++) {
+            var name = (String) components[i].getClass().getMethod("getName").invoke(components[i]);
+            result[i] = type.getDeclaredField(name);
+            if (result[i].getType().isArray()) {
+                throw new NoSuchFieldException("Fixed length arrays are not supported in records: " + type.getName() + "." + name);
+            }
+        }
+        return result;
+    }
+
+    private static FieldReader fieldReader(MethodHandles.Lookup lookup, Field field) throws ReflectiveOperationException {
+        var fieldType = field.getType();
+        if (ReflectiveBareDecoder.INTEGER_TYPES.contains(fieldType.getName())) {
+            var reader = integerReader(field);
+            return (decoder, instance) -> reader.read(decoder);
+        }
+        var primitive = primitiveReader(fieldType);
+        if (primitive != null) {
+            return (decoder, instance) -> primitive.read(decoder);
+        }
+        if (fieldType.isArray()) {
+            var component = fieldType.getComponentType();
+            var getter = lookup.unreflectGetter(field).asType(GETTER);
+            return (decoder, instance) -> {
+                Object[] current;
+                try {
+                    Object value = (Object) getter.invokeExact(instance);
+                    current = (Object[]) value;
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new InvocationTargetException(e);
+                }
+                return decoder.array(component, current.length).toArray((Object[]) Array.newInstance(component, current.length));
+            };
+        }
+        if (fieldType == List.class) {
+            var element = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+            return (decoder, instance) -> decoder.slice(element);
+        }
+        if (fieldType == Map.class) {
+            var arguments = ((ParameterizedType) field.getGenericType()).getActualTypeArguments();
+            var key = (Class<?>) arguments[0];
+            var value = (Class<?>) arguments[1];
+            return (decoder, instance) -> decoder.map(key, value);
+        }
+        if (fieldType == Optional.class) {
+            var element = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+            return (decoder, instance) -> decoder.bool() ? Optional.of(decoder.readType(element)) : Optional.empty();
+        }
+        return (decoder, instance) -> decoder.readType(fieldType);
+    }
+
+    private static Reader integerReader(Field field) {
+        var annotation = field.getAnnotation(Int.class);
+        if (annotation == null) {
+            return decoder -> {
+                throw new UnsupportedEncodingException("Missing @Int type annotation on number field: " + field.getName());
+            };
+        }
+        boolean isLong = field.getType() == long.class || field.getType() == Long.class;
+        switch (annotation.value()) {
+            case i8: return decoder -> decoder.i8();
+            case u8: return decoder -> decoder.u8();
+            case i16: return decoder -> decoder.i16();
+            case u16: return decoder -> decoder.u16();
+            case i32: return decoder -> decoder.i32();
+            case u32: return decoder -> decoder.u32();
+            case u64: return isLong ? decoder -> decoder.u64AsLong() : PrimitiveBareDecoder::u64;
+            case i64: return decoder -> decoder.i64();
+            case i: return decoder -> decoder.variadicInt();
+            case ui: return isLong ? decoder -> decoder.variadicUintAsLong() : PrimitiveBareDecoder::variadicUint;
+            default:
+                return decoder -> {
+                    throw new UnsupportedEncodingException("Unknown Int type: " + annotation.value());
+                };
+        }
+    }
+
+    @FunctionalInterface
+    private interface Reader {
+        Object read(ReflectiveBareDecoder decoder) throws IOException, BareException;
+    }
+
+    @FunctionalInterface
+    private interface FieldReader {
+        Object read(ReflectiveBareDecoder decoder, Object instance) throws IOException, ReflectiveOperationException, BareException;
+    }
+
+    private static final class FieldPlan {
+        final MethodHandle setter;
+        final FieldReader reader;
+
+        FieldPlan(MethodHandle setter, FieldReader reader) {
+            this.setter = setter;
+            this.reader = reader;
+        }
+    }
+}
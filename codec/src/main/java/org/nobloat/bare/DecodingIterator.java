@@ -0,0 +1,42 @@
+package org.nobloat.bare;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Decodes a known number of consecutive items one at a time, reading nothing ahead.
+ */
+final class DecodingIterator<T> implements Iterator<T> {
+
+    private final AggregateBareDecoder decoder;
+    private final AggregateBareDecoder.DecodeFunction<T> itemDecoder;
+    private int remaining;
+
+    DecodingIterator(AggregateBareDecoder decoder, int count, AggregateBareDecoder.DecodeFunction<T> itemDecoder) {
+        this.decoder = decoder;
+        this.itemDecoder = itemDecoder;
+        this.remaining = count;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0;
+    }
+
+    @Override
+    public T next() {
+        if (remaining == 0) {
+            throw new NoSuchElementException();
+        }
+        remaining--;
+        try {
+            return itemDecoder.apply(decoder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (BareException e) {
+            throw new UncheckedBareException(e);
+        }
+    }
+}
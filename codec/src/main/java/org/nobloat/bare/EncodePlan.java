@@ -0,0 +1,264 @@
+package org.nobloat.bare;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * How {@link ReflectiveBareEncoder} encodes one class, the counterpart of {@link DecodePlan}. Struct fields and record
+ * components are read through method handles with their writers picked upfront. Reflective failures are kept and
+ * thrown when the plan is used.
+ */
+final class EncodePlan {
+
+    private static final ClassValue<EncodePlan> PLANS = new ClassValue<>() {
+        @Override
+        protected EncodePlan computeValue(Class<?> type) {
+            return new EncodePlan(type);
+        }
+    };
+
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+
+    private final Class<?> type;
+    private final Union.Id unionId;
+    private Writer primitive;
+    private MethodHandle enumValue;
+    private FieldPlan[] fields;
+    private ReflectiveOperationException failure;
+
+    private EncodePlan(Class<?> type) {
+        this.type = type;
+        this.unionId = type.getAnnotation(Union.Id.class);
+        try {
+            primitive = primitiveWriter(type);
+            if (primitive == null && type.isEnum()) {
+                var field = type.getField("value");
+                field.setAccessible(true);
+                enumValue = MethodHandles.lookup().unreflectGetter(field).asType(GETTER);
+            } else if (primitive == null && DecodePlan.isRecord(type)) {
+                resolveRecord(type);
+            } else if (primitive == null) {
+                resolveStruct(type);
+            }
+        } catch (ReflectiveOperationException e) {
+            failure = e;
+        }
+    }
+
+    static EncodePlan of(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    int unionId() {
+        if (unionId == null) {
+            throw new UnsupportedOperationException("Missing annotation @Union.Id on " + type.getName());
+        }
+        return (int) unionId.value();
+    }
+
+    void encode(ReflectiveBareEncoder encoder, Object value) throws IOException, ReflectiveOperationException, BareException {
+        if (primitive != null) {
+            primitive.write(encoder, value);
+        } else if (type.isEnum()) {
+            encodeEnum(encoder, value);
+        } else {
+            encodeStruct(encoder, value);
+        }
+    }
+
+    void encodePrimitive(ReflectiveBareEncoder encoder, Object value) throws IOException, BareException {
+        if (primitive == null) {
+            throw new UnsupportedOperationException("writeType not implemented for " + type.getName());
+        }
+        primitive.write(encoder, value);
+    }
+
+    void encodeEnum(ReflectiveBareEncoder encoder, Object value) throws IOException, ReflectiveOperationException, BareException {
+        checkFailure();
+        if (enumValue == null) {
+            throw new IllegalArgumentException(type.getName() + " is not an enum");
+        }
+        encoder.variadicUInt(((Number) get(enumValue, value)).longValue());
+    }
+
+    void encodeStruct(ReflectiveBareEncoder encoder, Object value) throws IOException, ReflectiveOperationException, BareException {
+        checkFailure();
+        if (fields == null) {
+            throw new NoSuchMethodException(type.getName() + " is not a struct");
+        }
+        for (var field : fields) {
+            field.writer.write(encoder, get(field.getter, value));
+        }
+    }
+
+    private void checkFailure() throws ReflectiveOperationException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static Object get(MethodHandle getter, Object instance) throws InvocationTargetException {
+        try {
+            return (Object) getter.invokeExact(instance);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    private static Writer primitiveWriter(Class<?> type) {
+        if (type == Boolean.class || type == boolean.class) {
+            return (encoder, value) -> encoder.bool((Boolean) value);
+        } else if (type == Byte.class || type == byte.class) {
+            return (encoder, value) -> encoder.i8((byte) value);
+        } else if (type == Float.class || type == float.class) {
+            return (encoder, value) -> encoder.f32((float) value);
+        } else if (type == Double.class || type == double.class) {
+            return (encoder, value) -> encoder.f64((double) value);
+        } else if (type == String.class) {
+            return (encoder, value) -> encoder.string((String) value);
+        }
+        return null;
+    }
+
+    private void resolveStruct(Class<?> type) throws ReflectiveOperationException {
+        type.getConstructor();
+        var lookup = MethodHandles.lookup();
+        var resolved = new ArrayList<FieldPlan>();
+        for (var field : type.getFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            field.setAccessible(true);
+            resolved.add(new FieldPlan(lookup.unreflectGetter(field).asType(GETTER), fieldWriter(field)));
+        }
+        fields = resolved.toArray(new FieldPlan[0]);
+    }
+
+    private void resolveRecord(Class<?> type) throws ReflectiveOperationException {
+        var lookup = MethodHandles.lookup();
+        var components = DecodePlan.recordComponents(type);
+        fields = new FieldPlan[components.length];
+        for (int i = 0; i < components.length; i++) {
+            var accessor = type.getDeclaredMethod(components[i].getName());
+            accessor.setAccessible(true);
+            fields[i] = new FieldPlan(lookup.unreflect(accessor).asType(GETTER), fieldWriter(components[i]));
+        }
+    }
+
+    private static FieldWriter fieldWriter(Field field) {
+        var fieldType = field.getType();
+        if (ReflectiveBareDecoder.INTEGER_TYPES.contains(fieldType.getName())) {
+            var writer = integerWriter(field);
+            return writer::write;
+        }
+        var primitive = primitiveWriter(fieldType);
+        if (primitive != null) {
+            return primitive::write;
+        }
+        if (fieldType.isArray()) {
+            var component = fieldType.getComponentType();
+            return (encoder, value) -> {
+                for (var item : (Object[]) value) {
+                    encoder.writeType(component, item);
+                }
+            };
+        }
+        if (fieldType == List.class) {
+            var element = typeArgument(field, 0);
+            return (encoder, value) -> {
+                var items = (List<?>) value;
+                encoder.variadicUInt(items.size());
+                for (var item : items) {
+                    encoder.writeType(element, item);
+                }
+            };
+        }
+        if (fieldType == Map.class) {
+            var key = typeArgument(field, 0);
+            var valueType = typeArgument(field, 1);
+            return (encoder, value) -> {
+                var entries = (Map<?, ?>) value;
+                encoder.variadicUInt(entries.size());
+                for (var entry : entries.entrySet()) {
+                    EncodePlan.of(key).encodePrimitive(encoder, entry.getKey());
+                    encoder.writeType(valueType, entry.getValue());
+                }
+            };
+        }
+        if (fieldType == Optional.class) {
+            var element = typeArgument(field, 0);
+            return (encoder, value) -> {
+                var optional = (Optional<?>) value;
+                encoder.bool(optional != null && optional.isPresent());
+                if (optional != null && optional.isPresent()) {
+                    encoder.writeType(element, optional.get());
+                }
+            };
+        }
+        return (encoder, value) -> encoder.writeType(fieldType, value);
+    }
+
+    private static Class<?> typeArgument(Field field, int index) {
+        return (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[index];
+    }
+
+    private static Writer integerWriter(Field field) {
+        var annotation = field.getAnnotation(Int.class);
+        if (annotation == null) {
+            return (encoder, value) -> {
+                throw new UnsupportedEncodingException("Missing @Int type annotation on number field: " + field.getName());
+            };
+        }
+        boolean isBig = field.getType() == BigInteger.class;
+        switch (annotation.value()) {
+            case i8: return (encoder, value) -> encoder.i8(((Number) value).byteValue());
+            case u8: return (encoder, value) -> encoder.u8(((Number) value).byteValue());
+            case i16: return (encoder, value) -> encoder.i16(((Number) value).shortValue());
+            case u16: return (encoder, value) -> encoder.u16(((Number) value).intValue());
+            case i32: return (encoder, value) -> encoder.i32(((Number) value).intValue());
+            case u32: return (encoder, value) -> encoder.u32(((Number) value).longValue());
+            case u64: return isBig ? (encoder, value) -> encoder.u64((BigInteger) value) : (encoder, value) -> encoder.u64AsLong(((Number) value).longValue());
+            case i64: return (encoder, value) -> encoder.i64(((Number) value).longValue());
+            case i: return (encoder, value) -> encoder.variadicInt(((Number) value).longValue());
+            case ui: return isBig ? (encoder, value) -> encoder.variadicUInt((BigInteger) value) : (encoder, value) -> encoder.variadicUIntAsLong(((Number) value).longValue());
+            default:
+                return (encoder, value) -> {
+                    throw new UnsupportedEncodingException("Unknown Int type: " + annotation.value());
+                };
+        }
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(ReflectiveBareEncoder encoder, Object value) throws IOException, BareException;
+    }
+
+    @FunctionalInterface
+    private interface FieldWriter {
+        void write(ReflectiveBareEncoder encoder, Object value) throws IOException, ReflectiveOperationException, BareException;
+    }
+
+    private static final class FieldPlan {
+        final MethodHandle getter;
+        final FieldWriter writer;
+
+        FieldPlan(MethodHandle getter, FieldWriter writer) {
+            this.getter = getter;
+            this.writer = writer;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.nobloat.bare;
+
+/**
+ * Layout of the header in front of every frame: the payload length as unsigned varint or as little endian u32,
+ * optionally followed by a varint type tag.
+ */
+public enum FrameFormat {
+    Varint(false, false),
+    VarintTagged(false, true),
+    Fixed32(true, false),
+    Fixed32Tagged(true, true);
+
+    static final int MAX_HEADER_BYTES = 2 * BareOutput.MAX_VARINT_BYTES;
+
+    private final boolean fixed;
+    private final boolean tagged;
+
+    FrameFormat(boolean fixed, boolean tagged) {
+        this.fixed = fixed;
+        this.tagged = tagged;
+    }
+
+    public boolean isFixed() {
+        return fixed;
+    }
+
+    public boolean isTagged() {
+        return tagged;
+    }
+
+    int headerLength(int length, int tag) {
+        int result = fixed ? Integer.BYTES : varintLength(length);
+        return tagged ? result + varintLength(tag) : result;
+    }
+
+    private static int varintLength(int value) {
+        return value == 0 ? 1 : (38 - Integer.numberOfLeadingZeros(value)) / 7;
+    }
+
+    int writeHeader(byte[] target, int length, int tag) {
+        int position;
+        if (fixed) {
+            BareOutput.INT.set(target, 0, length);
+            position = Integer.BYTES;
+        } else {
+            position = BareOutput.putVarint(target, 0, length);
+        }
+        if (tagged) {
+            position += BareOutput.putVarint(target, position, tag);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,201 @@
+package org.nobloat.bare;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads frames written by a {@link FrameWriter}. The reader owns its source and reads ahead into an internal buffer.
+ * A frame's payload is only read when {@link #decoder()} or {@link #payload()} is called, otherwise {@link #next()}
+ * skips over it.
+ */
+public class FrameReader implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    public int MaxFrameLength = 1000000000;
+
+    private final InputStream is;
+    private final FrameFormat format;
+    private final AggregateBareDecoder decoder = new AggregateBareDecoder(new byte[0]);
+    private byte[] buffer;
+    private ByteBuffer view;
+    private int position;
+    private int limit;
+
+    private int length = -1;
+    private int tag;
+    private int pending;
+    private int payloadStart = -1;
+
+    public FrameReader(InputStream is, FrameFormat format, int bufferSize) {
+        this.is = is;
+        this.format = format;
+        this.buffer = new byte[Math.max(bufferSize, FrameFormat.MAX_HEADER_BYTES)];
+        this.view = ByteBuffer.wrap(buffer);
+    }
+
+    public FrameReader(InputStream is, FrameFormat format) {
+        this(is, format, DEFAULT_BUFFER_SIZE);
+    }
+
+    public FrameReader(ReadableByteChannel channel, FrameFormat format) {
+        this(Channels.newInputStream(channel), format);
+    }
+
+    public FrameFormat format() {
+        return format;
+    }
+
+    /**
+     * Moves to the next frame, returning {@code false} if the source ended right before it.
+     */
+    public boolean next() throws IOException, BareException {
+        skipPayload();
+        length = -1;
+        if (!fill(1)) {
+            return false;
+        }
+        long frameLength;
+        if (format.isFixed()) {
+            require(Integer.BYTES);
+            frameLength = (int) BareOutput.INT.get(buffer, position) & 0xFFFFFFFFL;
+            position += Integer.BYTES;
+        } else {
+            frameLength = readVarint();
+        }
+        if (frameLength > MaxFrameLength) {
+            throw new BareException(String.format("Decoding frame with length %d > %d max length", frameLength, MaxFrameLength));
+        }
+        long frameTag = format.isTagged() ? readVarint() : 0;
+        if (frameTag > Integer.MAX_VALUE) {
+            throw new BareException("Decoding frame tag " + frameTag + " exceeding int range");
+        }
+        length = (int) frameLength;
+        tag = (int) frameTag;
+        pending = length;
+        payloadStart = -1;
+        return true;
+    }
+
+    public int length() {
+        checkFrame();
+        return length;
+    }
+
+    public int tag() {
+        checkFrame();
+        return tag;
+    }
+
+    /**
+     * Returns a decoder positioned at the start of the current payload and limited to it.
+     */
+    public AggregateBareDecoder decoder() throws IOException {
+        decoder.reset(load());
+        return decoder;
+    }
+
+    public <T> T read(AggregateBareDecoder.DecodeFunction<T> decodeFunction) throws IOException, BareException {
+        return decodeFunction.apply(decoder());
+    }
+
+    /**
+     * Returns the current payload as a read-only buffer that stays valid until the next call to {@link #next()}.
+     */
+    public ByteBuffer payload() throws IOException {
+        return load().slice().asReadOnlyBuffer();
+    }
+
+    private ByteBuffer load() throws IOException {
+        checkFrame();
+        if (payloadStart < 0) {
+            require(length);
+            payloadStart = position;
+            position += length;
+            pending = 0;
+        }
+        return view.limit(payloadStart + length).position(payloadStart);
+    }
+
+    private void checkFrame() {
+        if (length < 0) {
+            throw new IllegalStateException("No current frame, call next() first");
+        }
+    }
+
+    private void skipPayload() throws IOException {
+        int buffered = Math.min(pending, limit - position);
+        position += buffered;
+        long remaining = pending - buffered;
+        while (remaining > 0) {
+            long skipped = is.skip(remaining);
+            if (skipped <= 0) {
+                if (is.read() < 0) {
+                    throw new EOFException("Frame truncated, " + remaining + " bytes missing");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+        pending = 0;
+    }
+
+    private long readVarint() throws IOException, BareException {
+        long result = 0;
+        int shift = 0;
+        int b;
+        do {
+            require(1);
+            b = buffer[position++] & 0xFF;
+            if (shift == 63 && b > 1) {
+                throw new BareException("Decoding uint exceeding 64 bits");
+            }
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b >= 0x80);
+        if (result < 0) {
+            throw new BareException("Decoding frame header " + Long.toUnsignedString(result) + " exceeding long range");
+        }
+        return result;
+    }
+
+    private void require(int bytes) throws IOException {
+        if (!fill(bytes)) {
+            throw new EOFException("Frame truncated, expected " + bytes + " bytes but only " + (limit - position) + " available");
+        }
+    }
+
+    private boolean fill(int bytes) throws IOException {
+        if (limit - position >= bytes) {
+            return true;
+        }
+        if (buffer.length - position < bytes) {
+            byte[] target = bytes > buffer.length ? new byte[Math.max(bytes, buffer.length << 1)] : buffer;
+            System.arraycopy(buffer, position, target, 0, limit - position);
+            limit -= position;
+            position = 0;
+            if (target != buffer) {
+                buffer = target;
+                view = ByteBuffer.wrap(buffer);
+            }
+        }
+        while (limit - position < bytes) {
+            int read = is.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        is.close();
+    }
+}
@@ -0,0 +1,86 @@
+package org.nobloat.bare;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes length prefixed frames. Every frame is encoded into a reusable buffer behind room reserved for its
+ * header and handed to the target with a single write.
+ */
+public class FrameWriter implements Closeable, Flushable {
+
+    private final OutputStream os;
+    private final FrameFormat format;
+    private final AggregateBareEncoder encoder = new AggregateBareEncoder();
+    private final BareOutput.Buffer buffer = (BareOutput.Buffer) encoder.os;
+    private final byte[] header = new byte[FrameFormat.MAX_HEADER_BYTES];
+
+    public FrameWriter(OutputStream os, FrameFormat format) {
+        this.os = os;
+        this.format = format;
+    }
+
+    public FrameWriter(WritableByteChannel channel, FrameFormat format) {
+        this(Channels.newOutputStream(channel), format);
+    }
+
+    public FrameFormat format() {
+        return format;
+    }
+
+    public int write(FrameBody body) throws IOException, BareException {
+        return write(0, body);
+    }
+
+    /**
+     * Writes one frame and returns its size including the header.
+     */
+    public int write(int tag, FrameBody body) throws IOException, BareException {
+        checkTag(tag);
+        buffer.count = FrameFormat.MAX_HEADER_BYTES;
+        body.encode(encoder);
+        int length = buffer.count - FrameFormat.MAX_HEADER_BYTES;
+        int headerLength = format.writeHeader(header, length, tag);
+        int start = FrameFormat.MAX_HEADER_BYTES - headerLength;
+        System.arraycopy(header, 0, buffer.buffer, start, headerLength);
+        os.write(buffer.buffer, start, headerLength + length);
+        return headerLength + length;
+    }
+
+    public int write(byte[] payload) throws IOException {
+        return write(0, payload, 0, payload.length);
+    }
+
+    public int write(int tag, byte[] payload, int offset, int length) throws IOException {
+        checkTag(tag);
+        int headerLength = format.writeHeader(header, length, tag);
+        os.write(header, 0, headerLength);
+        os.write(payload, offset, length);
+        return headerLength + length;
+    }
+
+    private void checkTag(int tag) {
+        if (tag < 0 || (tag != 0 && !format.isTagged())) {
+            throw new IllegalArgumentException("Tag " + tag + " is not supported by frame format " + format);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        os.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        os.close();
+    }
+
+    @FunctionalInterface
+    public interface FrameBody {
+        void encode(AggregateBareEncoder encoder) throws IOException, BareException;
+    }
+}
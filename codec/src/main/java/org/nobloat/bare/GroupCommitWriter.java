@@ -0,0 +1,241 @@
+package org.nobloat.bare;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends frames from many threads to a {@link FileChannel} with group commit.
+ * <p>
+ * Producers encode their message into a frame on their own thread and hand it to a bounded queue, blocking while the
+ * queue is full. A single writer thread drains the queue, copies as many frames as fit into a direct staging buffer,
+ * writes them with as few calls as possible and, if enabled, forces the channel once per batch. The returned futures
+ * complete with the file offset of the frame once the batch is written (and forced).
+ */
+public class GroupCommitWriter implements Closeable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+    public static final int DEFAULT_BATCH_BYTES = 1 << 20;
+
+    private static final Pending CLOSE = new Pending(new byte[0]);
+
+    private final FileChannel channel;
+    private final FrameFormat format;
+    private final BlockingQueue<Pending> queue;
+    private final ByteBuffer staging;
+    private final long lingerNanos;
+    private final boolean force;
+    private final CodecPool<AggregateBareEncoder> encoders = CodecPool.encoders();
+    private final Thread thread;
+    private volatile boolean closed;
+    private volatile boolean stopped;
+    private volatile IOException failure;
+    private long position;
+
+    /**
+     * @param queueCapacity frames that may wait for the writer thread before producers block
+     * @param batchBytes    size of the direct staging buffer, frames are written in chunks of at most this size
+     * @param lingerMicros  time the writer thread waits for more frames before writing a batch smaller than batchBytes
+     * @param force         whether to call {@link FileChannel#force(boolean)} after every batch
+     */
+    public GroupCommitWriter(FileChannel channel, FrameFormat format, int queueCapacity, int batchBytes, long lingerMicros, boolean force) throws IOException {
+        this.channel = channel;
+        this.format = format;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.staging = ByteBuffer.allocateDirect(batchBytes);
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+        this.force = force;
+        this.position = channel.size();
+        channel.position(position);
+        this.thread = new Thread(this::run, "bare-group-commit");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public GroupCommitWriter(FileChannel channel, FrameFormat format) throws IOException {
+        this(channel, format, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_BYTES, 0, true);
+    }
+
+    public CompletableFuture<Long> write(FrameWriter.FrameBody body) throws IOException, BareException, InterruptedException {
+        return write(0, body);
+    }
+
+    public CompletableFuture<Long> write(int tag, FrameWriter.FrameBody body) throws IOException, BareException, InterruptedException {
+        var encoder = encoders.acquire();
+        try {
+            encoder.reset();
+            body.encode(encoder);
+            var buffer = (BareOutput.Buffer) encoder.os;
+            return write(tag, buffer.buffer, 0, buffer.count);
+        } finally {
+            encoders.release(encoder);
+        }
+    }
+
+    public CompletableFuture<Long> write(byte[] payload) throws IOException, InterruptedException {
+        return write(0, payload, 0, payload.length);
+    }
+
+    /**
+     * Queues one frame, blocking while the queue is full. The payload is copied before this method returns.
+     */
+    public CompletableFuture<Long> write(int tag, byte[] payload, int offset, int length) throws IOException, InterruptedException {
+        if (tag < 0 || (tag != 0 && !format.isTagged())) {
+            throw new IllegalArgumentException("Tag " + tag + " is not supported by frame format " + format);
+        }
+        checkOpen();
+        int headerLength = format.headerLength(length, tag);
+        var frame = new byte[headerLength + length];
+        format.writeHeader(frame, length, tag);
+        System.arraycopy(payload, offset, frame, headerLength, length);
+        var pending = new Pending(frame);
+        queue.put(pending);
+        // the writer thread sets stopped before its last drain, so a frame queued after that drain is seen here
+        if (stopped && queue.remove(pending)) {
+            pending.future.completeExceptionally(failure != null ? failure : new IOException("Writer is closed"));
+        }
+        return pending.future;
+    }
+
+    private void checkOpen() throws IOException {
+        if (failure != null) {
+            throw new IOException("Writer failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Writer is closed");
+        }
+    }
+
+    private void run() {
+        var batch = new ArrayList<Pending>();
+        try {
+            while (true) {
+                var first = queue.take();
+                if (first == CLOSE) {
+                    break;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                if (lingerNanos > 0) {
+                    linger(batch);
+                }
+                boolean done = batch.remove(CLOSE);
+                commit(batch);
+                batch.clear();
+                if (done) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("Writer thread interrupted");
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException | Error e) {
+            failure = new IOException("Writer failed", e);
+            throw e;
+        } finally {
+            stopped = true;
+            closed = true;
+            queue.drainTo(batch);
+            fail(batch, failure != null ? failure : new IOException("Writer is closed"));
+        }
+    }
+
+    private void linger(List<Pending> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + lingerNanos;
+        int bytes = 0;
+        for (var pending : batch) {
+            bytes += pending.frame.length;
+        }
+        while (bytes < staging.capacity() && !batch.contains(CLOSE)) {
+            long wait = deadline - System.nanoTime();
+            var next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            bytes += next.frame.length;
+            queue.drainTo(batch);
+        }
+    }
+
+    private void commit(List<Pending> batch) throws IOException {
+        long start = position;
+        for (var pending : batch) {
+            var frame = pending.frame;
+            if (frame.length > staging.remaining()) {
+                drain();
+            }
+            if (frame.length > staging.capacity()) {
+                write(ByteBuffer.wrap(frame));
+            } else {
+                staging.put(frame);
+            }
+        }
+        drain();
+        if (force) {
+            channel.force(false);
+        }
+        long offset = start;
+        for (var pending : batch) {
+            pending.future.complete(offset);
+            offset += pending.frame.length;
+        }
+    }
+
+    private void drain() throws IOException {
+        staging.flip();
+        write(staging);
+        staging.clear();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+    }
+
+    private static void fail(List<Pending> batch, IOException e) {
+        for (var pending : batch) {
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Writes all queued frames, stops the writer thread and closes the channel.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                queue.put(CLOSE);
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class Pending {
+        final byte[] frame;
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        Pending(byte[] frame) {
+            this.frame = frame;
+        }
+    }
+}
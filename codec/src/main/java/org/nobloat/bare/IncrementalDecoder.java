@@ -0,0 +1,168 @@
+package org.nobloat.bare;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Decodes messages from bytes arriving in arbitrary pieces, e.g. from a non-blocking {@code SocketChannel}.
+ * Bytes are appended with {@link #read(ReadableByteChannel)} or {@link #feed(ByteBuffer)}, {@link #next()} returns
+ * the next complete message or {@code null} if more data is needed. Incomplete input stays buffered.
+ * <p>
+ * With a {@link FrameFormat} the frame header tells how many bytes a message needs, so a message is decoded once
+ * and only when it is complete. Without a format messages are written back to back and decoding is simply retried
+ * whenever more data arrived, which is only efficient for small messages.
+ */
+public class IncrementalDecoder<T> {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int MIN_READ = 1024;
+
+    public int MaxFrameLength = 1000000000;
+
+    private final FrameFormat format;
+    private final AggregateBareDecoder.DecodeFunction<T> decodeFunction;
+    private final AggregateBareDecoder decoder = new AggregateBareDecoder(new byte[0]);
+    private byte[] buffer;
+    private int start;
+    private int end;
+    private int required;
+    private int tag;
+
+    /**
+     * @param format frame format, or {@code null} for messages without framing
+     */
+    public IncrementalDecoder(FrameFormat format, AggregateBareDecoder.DecodeFunction<T> decodeFunction, int bufferSize) {
+        this.format = format;
+        this.decodeFunction = decodeFunction;
+        this.buffer = new byte[Math.max(bufferSize, FrameFormat.MAX_HEADER_BYTES)];
+    }
+
+    public IncrementalDecoder(FrameFormat format, AggregateBareDecoder.DecodeFunction<T> decodeFunction) {
+        this(format, decodeFunction, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Returns the decoder messages are decoded with, e.g. to configure {@code MaxSliceLength}.
+     */
+    public AggregateBareDecoder decoder() {
+        return decoder;
+    }
+
+    /**
+     * Reads the bytes the channel has available without blocking if it is in non-blocking mode.
+     * Returns the number of bytes read, or -1 at the end of the stream.
+     */
+    public int read(ReadableByteChannel channel) throws IOException {
+        reserve(Math.max(required - buffered(), MIN_READ));
+        int read = channel.read(ByteBuffer.wrap(buffer, end, buffer.length - end));
+        if (read > 0) {
+            end += read;
+        }
+        return read;
+    }
+
+    public void feed(ByteBuffer source) {
+        int length = source.remaining();
+        reserve(length);
+        source.get(buffer, end, length);
+        end += length;
+    }
+
+    public void feed(byte[] source, int offset, int length) {
+        reserve(length);
+        System.arraycopy(source, offset, buffer, end, length);
+        end += length;
+    }
+
+    /**
+     * Returns the number of bytes received but not consumed by a message yet.
+     */
+    public int buffered() {
+        return end - start;
+    }
+
+    /**
+     * Returns the tag of the message last returned by {@link #next()}.
+     */
+    public int tag() {
+        return tag;
+    }
+
+    /**
+     * Decodes the next message, or returns {@code null} if it is not complete yet. A framed message is consumed even
+     * if {@code decodeFunction} fails on it.
+     */
+    public T next() throws IOException, BareException {
+        int buffered = buffered();
+        if (buffered == 0 || buffered < required) {
+            return null;
+        }
+        var value = format == null ? nextMessage(buffered) : nextFrame(buffered);
+        if (start == end) {
+            start = 0;
+            end = 0;
+        }
+        return value;
+    }
+
+    private T nextMessage(int buffered) throws IOException, BareException {
+        decoder.reset(ByteBuffer.wrap(buffer, start, buffered));
+        T value;
+        try {
+            value = decodeFunction.apply(decoder);
+        } catch (EOFException e) {
+            if (buffered >= MaxFrameLength) {
+                throw new BareException(String.format("Decoding message exceeding %d max length", MaxFrameLength));
+            }
+            required = buffered + 1;
+            return null;
+        }
+        start = decoder.position();
+        required = 0;
+        return value;
+    }
+
+    private T nextFrame(int buffered) throws IOException, BareException {
+        decoder.reset(ByteBuffer.wrap(buffer, start, buffered));
+        long length;
+        int frameTag;
+        try {
+            length = format.isFixed() ? decoder.u32() : decoder.variadicUintAsLong();
+            if (length < 0) {
+                throw new BareException("Decoding frame header " + Long.toUnsignedString(length) + " exceeding long range");
+            }
+            if (length > MaxFrameLength) {
+                throw new BareException(String.format("Decoding frame with length %d > %d max length", length, MaxFrameLength));
+            }
+            frameTag = format.isTagged() ? decoder.variadicUintAsInt() : 0;
+        } catch (EOFException e) {
+            required = buffered + 1;
+            return null;
+        }
+        int payload = decoder.position();
+        long frameEnd = payload + length;
+        if (frameEnd > end) {
+            required = (int) (frameEnd - start);
+            return null;
+        }
+        decoder.reset(ByteBuffer.wrap(buffer, payload, (int) length));
+        start = (int) frameEnd;
+        required = 0;
+        tag = frameTag;
+        return decodeFunction.apply(decoder);
+    }
+
+    private void reserve(int bytes) {
+        if (buffer.length - end >= bytes) {
+            return;
+        }
+        int buffered = buffered();
+        byte[] target = buffered + bytes > buffer.length ? new byte[Math.max(buffer.length << 1, buffered + bytes)] : buffer;
+        System.arraycopy(buffer, start, target, 0, buffered);
+        buffer = target;
+        start = 0;
+        end = buffered;
+    }
+}
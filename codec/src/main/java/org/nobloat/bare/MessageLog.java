@@ -0,0 +1,419 @@
+package org.nobloat.bare;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only log of framed records, addressed by a sequence number starting at 0.
+ * <p>
+ * Records are stored in segment files named after the sequence number of their first record ({@code <base>.log}).
+ * Each segment has a sidecar index ({@code <base>.idx}) holding the little endian {@code int} offset of every record,
+ * so any record is located with a single index lookup. A segment is rolled once it reaches {@code segmentSize}; the
+ * last record may exceed it. Segments and sealed indexes are read through memory mapped buffers. The segment being
+ * written is remapped whenever it has doubled in size, records appended since are read with positional reads. The
+ * index of the segment being written is kept in memory and persisted on {@link #flush()} and {@link #close()};
+ * entries missing after a crash are recovered by scanning the frames when the log is opened, dropping an incomplete
+ * record at the end.
+ * <p>
+ * Appends and lookups are synchronized, decoding of records happens outside the lock.
+ */
+public class MessageLog implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+    /**
+     * Largest segment size, leaving room for a record appended at the end of a full segment within the {@code int}
+     * offsets of the index.
+     */
+    public static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+    private static final int MAX_HEADER_BYTES = 2 * BareOutput.MAX_VARINT_BYTES;
+    private static final String LOG_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final Path directory;
+    private final FrameFormat format;
+    private final int segmentSize;
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+    private FileChannel channel;
+    private FrameWriter writer;
+
+    public MessageLog(Path directory, FrameFormat format, int segmentSize) throws IOException, BareException {
+        if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size must be between 1 and " + MAX_SEGMENT_SIZE);
+        }
+        this.directory = directory;
+        this.format = format;
+        this.segmentSize = segmentSize;
+
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (var list = Files.list(directory)) {
+            files = list.filter(f -> f.getFileName().toString().endsWith(LOG_SUFFIX)).sorted().collect(Collectors.toList());
+        }
+        for (var file : files) {
+            var name = file.getFileName().toString();
+            var segment = new Segment(Long.parseLong(name.substring(0, name.length() - LOG_SUFFIX.length())));
+            segment.recover();
+            if (!segments.isEmpty() && segments.get(segments.size() - 1).end() != segment.base) {
+                throw new BareException("Segment " + name + " does not continue at sequence " + segments.get(segments.size() - 1).end());
+            }
+            segments.add(segment);
+        }
+        for (int i = 0; i < segments.size() - 1; i++) {
+            segments.get(i).seal();
+        }
+        if (segments.isEmpty()) {
+            segments.add(new Segment(0));
+        }
+        activate(segments.get(segments.size() - 1));
+    }
+
+    public MessageLog(Path directory) throws IOException, BareException {
+        this(directory, FrameFormat.Varint, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    public FrameFormat format() {
+        return format;
+    }
+
+    /**
+     * Returns the number of records, which is also the sequence number of the next record appended.
+     */
+    public synchronized long size() {
+        return active.end();
+    }
+
+    public long append(FrameWriter.FrameBody body) throws IOException, BareException {
+        return append(0, body);
+    }
+
+    /**
+     * Appends a record and returns its sequence number.
+     */
+    public synchronized long append(int tag, FrameWriter.FrameBody body) throws IOException, BareException {
+        if (active.size >= segmentSize) {
+            roll();
+        }
+        return appended(writer.write(tag, body));
+    }
+
+    public synchronized long append(int tag, byte[] payload, int offset, int length) throws IOException {
+        if (active.size >= segmentSize) {
+            roll();
+        }
+        return appended(writer.write(tag, payload, offset, length));
+    }
+
+    private long appended(int written) throws IOException {
+        long start = active.size;
+        if (start + written > Integer.MAX_VALUE) {
+            channel.truncate(start);
+            channel.position(start);
+            throw new IOException("Record of " + written + " bytes exceeds the segment limit of " + Integer.MAX_VALUE + " bytes");
+        }
+        active.add((int) start);
+        active.size += written;
+        return active.end() - 1;
+    }
+
+    /**
+     * Returns a decoder limited to the payload of the given record.
+     */
+    public AggregateBareDecoder decoder(long sequence) throws IOException, BareException {
+        return new AggregateBareDecoder(payloadBuffer(sequence));
+    }
+
+    public <T> T read(long sequence, AggregateBareDecoder.DecodeFunction<T> decodeFunction) throws IOException, BareException {
+        return decodeFunction.apply(decoder(sequence));
+    }
+
+    /**
+     * Decodes the records {@code from} (inclusive) to {@code to} (exclusive).
+     */
+    public <T> List<T> read(long from, long to, AggregateBareDecoder.DecodeFunction<T> decodeFunction) throws IOException, BareException {
+        var result = new ArrayList<T>((int) Math.max(0, Math.min(to - from, Integer.MAX_VALUE)));
+        for (long sequence = from; sequence < to; sequence++) {
+            result.add(read(sequence, decodeFunction));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the payload of the given record as a read-only slice of the mapped segment, or of a copy for records
+     * appended after the segment was last mapped.
+     */
+    public ByteBuffer payload(long sequence) throws IOException, BareException {
+        return payloadBuffer(sequence).slice().asReadOnlyBuffer();
+    }
+
+    public int tag(long sequence) throws IOException, BareException {
+        if (!format.isTagged()) {
+            return 0;
+        }
+        var decoder = new AggregateBareDecoder(frame(sequence));
+        skipLength(decoder);
+        return decoder.variadicUintAsInt();
+    }
+
+    /**
+     * Persists the index entries of records appended since the last flush.
+     */
+    public synchronized void flush() throws IOException {
+        writer.flush();
+        active.writeIndex();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private ByteBuffer frame(long sequence) throws IOException {
+        int offset;
+        ByteBuffer map;
+        synchronized (this) {
+            if (sequence < 0 || sequence >= active.end()) {
+                throw new IndexOutOfBoundsException("Sequence " + sequence + " outside of log with " + active.end() + " records");
+            }
+            var segment = segment(sequence);
+            int i = (int) (sequence - segment.base);
+            offset = segment.offset(i);
+            long end = i + 1 < segment.count ? segment.offset(i + 1) : segment.size;
+            map = segment.map(end);
+            if (map == null) {
+                return read(offset, (int) (end - offset));
+            }
+        }
+        return map.duplicate().position(offset);
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        var result = ByteBuffer.allocate(length);
+        while (result.hasRemaining()) {
+            if (channel.read(result, position + result.position()) < 0) {
+                throw new EOFException("Segment ends within record at " + position);
+            }
+        }
+        return result.flip();
+    }
+
+    private ByteBuffer payloadBuffer(long sequence) throws IOException, BareException {
+        var frame = frame(sequence);
+        var header = new AggregateBareDecoder(frame);
+        int length = payloadLength(header);
+        return frame.limit(header.position() + length).position(header.position());
+    }
+
+    private Segment segment(long sequence) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (segments.get(middle).base <= sequence) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return segments.get(low);
+    }
+
+    private void skipLength(AggregateBareDecoder decoder) throws IOException, BareException {
+        if (format.isFixed()) {
+            decoder.skip(Integer.BYTES);
+        } else {
+            decoder.skipVarint();
+        }
+    }
+
+    private int payloadLength(AggregateBareDecoder decoder) throws IOException, BareException {
+        long length = format.isFixed() ? decoder.u32() : decoder.variadicUintAsLong();
+        if (format.isTagged()) {
+            decoder.skipVarint();
+        }
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new BareException("Decoding record with length " + Long.toUnsignedString(length) + " exceeding int range");
+        }
+        return (int) length;
+    }
+
+    private void roll() throws IOException {
+        active.writeIndex();
+        channel.close();
+        active.seal();
+        var segment = new Segment(active.end());
+        segments.add(segment);
+        activate(segment);
+    }
+
+    private void activate(Segment segment) throws IOException {
+        segment.map = null;
+        channel = FileChannel.open(segment.log, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.truncate(segment.size);
+        channel.position(segment.size);
+        writer = new FrameWriter(channel, format);
+        active = segment;
+    }
+
+    private final class Segment {
+        final long base;
+        final Path log;
+        final Path index;
+        int[] offsets = new int[1024];
+        IntBuffer sealed;
+        int count;
+        int indexed;
+        long size;
+        ByteBuffer map;
+
+        Segment(long base) {
+            this.base = base;
+            var name = String.format("%020d", base);
+            this.log = directory.resolve(name + LOG_SUFFIX);
+            this.index = directory.resolve(name + INDEX_SUFFIX);
+        }
+
+        long end() {
+            return base + count;
+        }
+
+        int offset(int i) {
+            return sealed != null ? sealed.get(i) : offsets[i];
+        }
+
+        void add(int offset) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count << 1);
+            }
+            offsets[count++] = offset;
+        }
+
+        /**
+         * Returns a mapping covering the segment up to {@code end}, or {@code null} if the segment has grown by less
+         * than the current mapping since it was mapped and the bytes are to be read from the channel instead.
+         */
+        ByteBuffer map(long end) throws IOException {
+            if (map != null && map.capacity() >= end) {
+                return map;
+            }
+            if (map != null && size < 2L * map.capacity()) {
+                return null;
+            }
+            return map();
+        }
+
+        ByteBuffer map() throws IOException {
+            try (var file = FileChannel.open(log, StandardOpenOption.READ)) {
+                map = file.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            return map;
+        }
+
+        void recover() throws IOException, BareException {
+            long fileSize = Files.size(log);
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new BareException("Segment " + log + " exceeds " + Integer.MAX_VALUE + " bytes");
+            }
+            if (Files.exists(index)) {
+                var entries = ByteBuffer.wrap(Files.readAllBytes(index)).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                offsets = new int[Math.max(entries.remaining(), 1024)];
+                count = entries.remaining();
+                entries.get(offsets, 0, count);
+            }
+            size = fileSize;
+
+            // frame headers are read positionally, a mapping of the torn tail would outlive the truncation in activate
+            long end = -1;
+            try (var file = FileChannel.open(log, StandardOpenOption.READ)) {
+                var header = ByteBuffer.allocate(MAX_HEADER_BYTES);
+                while (count > 0 && (end = recordEnd(file, header, offsets[count - 1])) < 0) {
+                    count--;
+                }
+                if (count == 0) {
+                    end = 0;
+                }
+                indexed = count;
+                while (end < fileSize) {
+                    long next = recordEnd(file, header, end);
+                    if (next < 0) {
+                        break;
+                    }
+                    add((int) end);
+                    end = next;
+                }
+            }
+            size = end;
+            if (Files.exists(index) && Files.size(index) != (long) indexed * Integer.BYTES) {
+                try (var file = FileChannel.open(index, StandardOpenOption.WRITE)) {
+                    file.truncate((long) indexed * Integer.BYTES);
+                }
+            }
+        }
+
+        private long recordEnd(FileChannel file, ByteBuffer header, long offset) throws IOException {
+            if (offset < 0 || offset >= size) {
+                return -1;
+            }
+            header.clear().limit((int) Math.min(header.capacity(), size - offset));
+            try {
+                while (header.hasRemaining()) {
+                    if (file.read(header, offset + header.position()) < 0) {
+                        throw new EOFException("Segment ends within header at " + offset);
+                    }
+                }
+                var decoder = new AggregateBareDecoder(header.flip());
+                int length = payloadLength(decoder);
+                long end = offset + decoder.position() + length;
+                return end <= size ? end : -1;
+            } catch (EOFException | BareException e) {
+                return -1;
+            }
+        }
+
+        void writeIndex() throws IOException {
+            if (indexed == count) {
+                return;
+            }
+            var entries = ByteBuffer.allocate((count - indexed) * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            entries.asIntBuffer().put(offsets, indexed, count - indexed);
+            try (var file = FileChannel.open(index, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                long position = (long) indexed * Integer.BYTES;
+                while (entries.hasRemaining()) {
+                    position += file.write(entries, position);
+                }
+            }
+            indexed = count;
+        }
+
+        void seal() throws IOException {
+            writeIndex();
+            if (count > 0) {
+                try (var file = FileChannel.open(index, StandardOpenOption.READ)) {
+                    sealed = file.map(FileChannel.MapMode.READ_ONLY, 0, (long) count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                }
+            } else {
+                sealed = IntBuffer.allocate(0);
+            }
+            offsets = null;
+            map = null;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.nobloat.bare;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Encodes messages on an {@link Executor} and writes them to a sink in submission order, so the output is identical
+ * to encoding them one after another on a single thread, optionally framed like a {@link FrameWriter}.
+ * <p>
+ * Every message is encoded with a pooled encoder and copied into its own array. At most {@code maxInFlight} encoded
+ * or encoding messages are kept; {@link #write(Object)} blocks on the oldest one when that limit is reached.
+ * This class itself is not thread safe, it is meant to be fed by a single producer.
+ * <p>
+ * If a message fails to encode or write, the messages behind it are cancelled and every later call fails, as the
+ * output is incomplete from that message on.
+ */
+public class ParallelEncoder<T> implements Closeable, Flushable {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+
+    private final OutputStream os;
+    private final FrameFormat format;
+    private final MessageEncoder<T> messageEncoder;
+    private final Executor executor;
+    private final int maxInFlight;
+    private final CodecPool<AggregateBareEncoder> encoders = CodecPool.encoders();
+    private final ArrayDeque<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>();
+    private Exception failure;
+
+    /**
+     * @param format frame format, or {@code null} to write the encoded messages back to back
+     */
+    public ParallelEncoder(OutputStream sink, FrameFormat format, MessageEncoder<T> messageEncoder, Executor executor, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.os = new BufferedOutputStream(sink, PrimitiveBareEncoder.DEFAULT_BUFFER_SIZE * 8);
+        this.format = format;
+        this.messageEncoder = messageEncoder;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public ParallelEncoder(OutputStream sink, FrameFormat format, MessageEncoder<T> messageEncoder) {
+        this(sink, format, messageEncoder, ForkJoinPool.commonPool(), DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public void write(T message) throws IOException, BareException {
+        checkFailure();
+        while (inFlight.size() >= maxInFlight) {
+            writeHead();
+        }
+        inFlight.add(CompletableFuture.supplyAsync(() -> encode(message), executor));
+        while (!inFlight.isEmpty() && inFlight.peek().isDone()) {
+            writeHead();
+        }
+    }
+
+    public void writeAll(Iterator<? extends T> messages) throws IOException, BareException {
+        while (messages.hasNext()) {
+            write(messages.next());
+        }
+    }
+
+    public void writeAll(Iterable<? extends T> messages) throws IOException, BareException {
+        writeAll(messages.iterator());
+    }
+
+    /**
+     * Writes all messages of a sequential stream; the stream itself is consumed on the calling thread.
+     */
+    public void writeAll(Stream<? extends T> messages) throws IOException, BareException {
+        writeAll(messages.iterator());
+    }
+
+    private byte[] encode(T message) {
+        var encoder = encoders.acquire();
+        try {
+            encoder.reset();
+            messageEncoder.encode(message, encoder);
+            var buffer = (BareOutput.Buffer) encoder.os;
+            if (format == null) {
+                return encoder.toByteArray();
+            }
+            int headerLength = format.headerLength(buffer.count, 0);
+            var frame = new byte[headerLength + buffer.count];
+            format.writeHeader(frame, buffer.count, 0);
+            System.arraycopy(buffer.buffer, 0, frame, headerLength, buffer.count);
+            return frame;
+        } catch (IOException | BareException e) {
+            throw new CompletionException(e);
+        } finally {
+            encoders.release(encoder);
+        }
+    }
+
+    private void writeHead() throws IOException, BareException {
+        byte[] frame;
+        try {
+            frame = inFlight.peek().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw fail(new IOException("Interrupted while waiting for an encoded message", e));
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw fail((IOException) cause);
+            }
+            if (cause instanceof BareException) {
+                throw fail((BareException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw fail((RuntimeException) cause);
+            }
+            throw fail(new IOException(cause));
+        }
+        inFlight.poll();
+        try {
+            os.write(frame);
+        } catch (IOException e) {
+            throw fail(e);
+        }
+    }
+
+    /**
+     * Records {@code e} as failure of this encoder and cancels the messages queued behind the failed one.
+     */
+    private <E extends Exception> E fail(E e) {
+        failure = e;
+        for (var future : inFlight) {
+            future.cancel(false);
+        }
+        inFlight.clear();
+        return e;
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Encoder failed on an earlier message", failure);
+        }
+    }
+
+    /**
+     * Waits for all submitted messages, writes them and flushes the sink.
+     */
+    @Override
+    public void flush() throws IOException {
+        checkFailure();
+        try {
+            while (!inFlight.isEmpty()) {
+                writeHead();
+            }
+        } catch (BareException e) {
+            throw new IOException(e);
+        }
+        os.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            os.close();
+        }
+    }
+
+    @FunctionalInterface
+    public interface MessageEncoder<T> {
+        void encode(T message, AggregateBareEncoder encoder) throws IOException, BareException;
+    }
+}
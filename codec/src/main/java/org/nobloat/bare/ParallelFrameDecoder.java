@@ -0,0 +1,166 @@
+package org.nobloat.bare;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Decodes the frames of a buffer on multiple threads. The constructor scans the frame headers once, which only
+ * touches the length prefixes, afterwards every frame can be decoded independently.
+ * <p>
+ * Frames are decoded on a {@link ForkJoinPool} into a list in frame order, handed to a consumer as soon as they are
+ * decoded, or exposed as a parallel {@link Stream}.
+ */
+public class ParallelFrameDecoder {
+
+    static final int MIN_FRAMES_PER_TASK = 16;
+
+    private final ByteBuffer buffer;
+    private final FrameFormat format;
+    private int[] starts = new int[1024];
+    private int[] lengths = new int[1024];
+    private int[] tags;
+    private int count;
+
+    public ParallelFrameDecoder(ByteBuffer buffer, FrameFormat format, int maxFrameLength) throws IOException, BareException {
+        this.buffer = buffer;
+        this.format = format;
+        if (format.isTagged()) {
+            tags = new int[starts.length];
+        }
+        scan(maxFrameLength);
+    }
+
+    public ParallelFrameDecoder(ByteBuffer buffer, FrameFormat format) throws IOException, BareException {
+        this(buffer, format, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Maps a file of at most 2 GiB and scans its frames.
+     */
+    public static ParallelFrameDecoder map(Path file, FrameFormat format) throws IOException, BareException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ParallelFrameDecoder(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), format);
+        }
+    }
+
+    private void scan(int maxFrameLength) throws IOException, BareException {
+        var decoder = new PrimitiveBareDecoder(buffer);
+        int end = buffer.limit();
+        while (decoder.position() < end) {
+            long length = format.isFixed() ? decoder.u32() : decoder.variadicUintAsLong();
+            if (length < 0 || length > maxFrameLength) {
+                throw new BareException(String.format("Decoding frame with length %s > %d max length", Long.toUnsignedString(length), maxFrameLength));
+            }
+            int tag = format.isTagged() ? decoder.variadicUintAsInt() : 0;
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count << 1);
+                lengths = Arrays.copyOf(lengths, count << 1);
+                if (tags != null) {
+                    tags = Arrays.copyOf(tags, count << 1);
+                }
+            }
+            starts[count] = decoder.position();
+            lengths[count] = (int) length;
+            if (tags != null) {
+                tags[count] = tag;
+            }
+            count++;
+            decoder.skip(length);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int tag(int frame) {
+        checkIndex(frame);
+        return tags != null ? tags[frame] : 0;
+    }
+
+    /**
+     * Returns a decoder limited to the payload of one frame.
+     */
+    public AggregateBareDecoder decoder(int frame) {
+        checkIndex(frame);
+        return new AggregateBareDecoder(payload(buffer.duplicate(), frame));
+    }
+
+    private void checkIndex(int frame) {
+        if (frame < 0 || frame >= count) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " outside of " + count + " frames");
+        }
+    }
+
+    private ByteBuffer payload(ByteBuffer view, int frame) {
+        view.clear();
+        return view.position(starts[frame]).limit(starts[frame] + lengths[frame]);
+    }
+
+    public <T> List<T> decode(AggregateBareDecoder.DecodeFunction<T> decodeFunction) throws IOException, BareException {
+        return decode(decodeFunction, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Decodes all frames on the given pool and returns them in frame order.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> decode(AggregateBareDecoder.DecodeFunction<T> decodeFunction, ForkJoinPool pool) throws IOException, BareException {
+        var result = new Object[count];
+        decode(decodeFunction, pool, (frame, value) -> result[frame] = value);
+        return (List<T>) Arrays.asList(result);
+    }
+
+    /**
+     * Decodes all frames on the given pool, calling {@code consumer} concurrently and in no particular order.
+     */
+    public <T> void decodeUnordered(AggregateBareDecoder.DecodeFunction<T> decodeFunction, Consumer<? super T> consumer, ForkJoinPool pool) throws IOException, BareException {
+        decode(decodeFunction, pool, (frame, value) -> consumer.accept(value));
+    }
+
+    public <T> void decodeUnordered(AggregateBareDecoder.DecodeFunction<T> decodeFunction, Consumer<? super T> consumer) throws IOException, BareException {
+        decodeUnordered(decodeFunction, consumer, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns a parallel, ordered stream of the decoded frames. Decoding failures are thrown as
+     * {@link UncheckedIOException} or {@link UncheckedBareException}.
+     */
+    public <T> Stream<T> stream(AggregateBareDecoder.DecodeFunction<T> decodeFunction) {
+        return IntStream.range(0, count).parallel().mapToObj(frame -> {
+            try {
+                return decodeFunction.apply(decoder(frame));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (BareException e) {
+                throw new UncheckedBareException(e);
+            }
+        });
+    }
+
+    private <T> void decode(AggregateBareDecoder.DecodeFunction<T> decodeFunction, ForkJoinPool pool, Sink<T> sink) throws IOException, BareException {
+        ParallelRangeTask.run(pool, count, MIN_FRAMES_PER_TASK, (from, to) -> {
+            var view = buffer.duplicate();
+            var decoder = new AggregateBareDecoder(view);
+            for (int frame = from; frame < to; frame++) {
+                decoder.reset(payload(view, frame));
+                sink.accept(frame, decodeFunction.apply(decoder));
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface Sink<T> {
+        void accept(int frame, T value);
+    }
+}
@@ -0,0 +1,59 @@
+package org.nobloat.bare;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits a range of items recursively on a {@link ForkJoinPool} and processes chunks of at most {@code threshold}
+ * items sequentially.
+ */
+final class ParallelRangeTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+    private final int threshold;
+    private final Chunk chunk;
+
+    private ParallelRangeTask(int from, int to, int threshold, Chunk chunk) {
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+        this.chunk = chunk;
+    }
+
+    static void run(ForkJoinPool pool, int count, int minChunk, Chunk chunk) throws IOException, BareException {
+        int threshold = Math.max(minChunk, count / (pool.getParallelism() * 8));
+        try {
+            pool.invoke(new ParallelRangeTask(0, count, threshold, chunk));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (UncheckedBareException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from > threshold) {
+            int middle = (from + to) >>> 1;
+            invokeAll(new ParallelRangeTask(from, middle, threshold, chunk), new ParallelRangeTask(middle, to, threshold, chunk));
+            return;
+        }
+        try {
+            chunk.apply(from, to);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (BareException e) {
+            throw new UncheckedBareException(e);
+        }
+    }
+
+    @FunctionalInterface
+    interface Chunk {
+        void apply(int from, int to) throws IOException, BareException;
+    }
+}
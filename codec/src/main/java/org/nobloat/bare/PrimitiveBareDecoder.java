@@ -1,69 +1,99 @@
 package org.nobloat.bare;
 
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 
 public class PrimitiveBareDecoder {
 
-    private final DataInputStream is;
+    BareInput in;
     private static final BigInteger UNSIGNED_LONG_MASK = BigInteger.ONE.shiftLeft(Long.SIZE).subtract(BigInteger.ONE);
 
     public int MaxSliceLength = 1000000000;
+    public boolean ValidateUtf8 = false;
 
     public PrimitiveBareDecoder(InputStream is) {
-        this.is = new DataInputStream(is);
+        this.in = new BareInput.Stream(is);
+    }
+
+    public PrimitiveBareDecoder(ByteBuffer buffer) {
+        this.in = new BareInput.Buffer(buffer);
+    }
+
+    public PrimitiveBareDecoder(byte[] data) {
+        this(ByteBuffer.wrap(data));
+    }
+
+    public void reset(InputStream is) {
+        if (in instanceof BareInput.Stream) {
+            ((BareInput.Stream) in).reset(is);
+        } else {
+            in = new BareInput.Stream(is);
+        }
+    }
+
+    public void reset(ByteBuffer buffer) {
+        if (in instanceof BareInput.Buffer) {
+            ((BareInput.Buffer) in).reset(buffer);
+        } else {
+            in = new BareInput.Buffer(buffer);
+        }
+    }
+
+    public void reset(byte[] data) {
+        reset(ByteBuffer.wrap(data));
+    }
+
+    public int position() {
+        return buffer().position();
+    }
+
+    public void position(int position) {
+        buffer().position(position);
+    }
+
+    BareInput.Buffer buffer() {
+        if (in instanceof BareInput.Buffer) {
+            return (BareInput.Buffer) in;
+        }
+        throw new UnsupportedOperationException("Decoder reads from an InputStream and has no position");
     }
 
     public byte u8() throws IOException {
-        return is.readByte();
+        return in.readByte();
     }
 
     public int u16() throws IOException {
-        int byte1 = is.readByte() & 0xff;
-        int byte2 = is.readByte() & 0xff;
-        return (byte1 | byte2 << 8);
+        return in.readShort() & 0xffff;
     }
 
     public long u32() throws IOException {
-        long byte1 = is.readByte() & 0xff;
-        long byte2 = is.readByte() & 0xff;
-        long byte3 = is.readByte() & 0xff;
-        long byte4 = is.readByte() & 0xff;
-        return (byte4 << 24) | (byte3 << 16) | (byte2 << 8) | (byte1);
+        return in.readInt() & 0xffffffffL;
     }
 
     public BigInteger u64() throws IOException {
         return BigInteger.valueOf(i64()).and(UNSIGNED_LONG_MASK);
     }
 
+    public long u64AsLong() throws IOException {
+        return in.readLong();
+    }
+
     public byte i8() throws IOException {
-        return is.readByte();
+        return in.readByte();
     }
 
     public short i16() throws IOException {
-        int byte1 = is.readByte() & 0xff;
-        int byte2 = is.readByte() & 0xff;
-        return (short) (byte2 << 8 | byte1);
+        return in.readShort();
     }
 
     public int i32() throws IOException {
-        return (int) u32();
+        return in.readInt();
     }
 
     public long i64() throws IOException {
-        long byte1 = is.readByte() & 0xff;
-        long byte2 = is.readByte() & 0xff;
-        long byte3 = is.readByte() & 0xff;
-        long byte4 = is.readByte() & 0xff;
-        long byte5 = is.readByte() & 0xff;
-        long byte6 = is.readByte() & 0xff;
-        long byte7 = is.readByte() & 0xff;
-        long byte8 = is.readByte() & 0xff;
-        return (byte8 << 56) | (byte7 << 48) | (byte6 << 40) | (byte5 << 32) |(byte4 << 24) | (byte3 << 16) |
-                (byte2 << 8) | (byte1);
+        return in.readLong();
     }
 
     public float f32() throws IOException {
@@ -75,15 +105,44 @@ public class PrimitiveBareDecoder {
     }
 
     public boolean bool() throws IOException {
-        return is.readByte() != 0;
+        return in.readByte() != 0;
     }
 
+    /**
+     * Decodes a zig-zag encoded varint. Varints exceeding 64 bits raise an {@link IOException} caused by a
+     * {@link BareException}, keeping the signature of this method.
+     */
     public long variadicInt() throws IOException {
-        BigInteger r = variadicUint();
-        if (r.testBit(0)) {
-            return r.shiftRight(1).not().longValue();
+        long r;
+        try {
+            r = variadicUintAsLong();
+        } catch (BareException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        return (r >>> 1) ^ -(r & 1);
+    }
+
+    public long variadicUintAsLong() throws IOException, BareException {
+        long result = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readByte() & 0xff;
+            if (shift == 63 && b > 1) {
+                throw new BareException("Decoding uint exceeding 64 bits");
+            }
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b >= 0x80);
+        return result;
+    }
+
+    public int variadicUintAsInt() throws IOException, BareException {
+        long result = variadicUintAsLong();
+        if (result < 0 || result > Integer.MAX_VALUE) {
+            throw new BareException("Decoding uint " + Long.toUnsignedString(result) + " exceeding int range");
         }
-        return r.shiftRight(1).longValue();
+        return (int) result;
     }
 
     public BigInteger variadicUint() throws IOException {
@@ -91,7 +150,7 @@ public class PrimitiveBareDecoder {
         int shift = 0;
         int b;
         do {
-            b = is.readByte() & 0xff;
+            b = in.readByte() & 0xff;
             if (b >= 0x80) {
                 result = result.or(BigInteger.valueOf(b & 0x7F).shiftLeft(shift));
                 shift += 7;
@@ -103,32 +162,55 @@ public class PrimitiveBareDecoder {
     }
 
     public String string() throws IOException, BareException {
-        int length = variadicUint().intValue();
-        if (length > MaxSliceLength) {
-            throw new BareException(String.format("Decoding slice with length %d > %d max length", length, MaxSliceLength));
-        }
-        var target = new byte[length];
-        is.read(target);
-        return new String(target, StandardCharsets.UTF_8);
+        return in.readString(dataLength(), ValidateUtf8);
     }
 
     public byte[] data(int length) throws IOException {
+        in.require(length, Byte.BYTES);
         var result = new byte[length];
-        for (int i=0; i < length; i++) {
-            result[i] = is.readByte();
-        }
+        in.readFully(result, 0, length);
         return result;
     }
 
     public Byte[] data() throws IOException, BareException {
-        int length = variadicUint().intValue();
+        var bytes = dataAsBytes();
+        var result = new Byte[bytes.length];
+        for (int i=0; i < bytes.length; i++) {
+            result[i] = bytes[i];
+        }
+        return result;
+    }
+
+    public byte[] dataAsBytes() throws IOException, BareException {
+        return data(dataLength());
+    }
+
+    public void skip(long length) throws IOException {
+        in.skip(length);
+    }
+
+    public void skipVarint() throws IOException, BareException {
+        for (int i = 0; i < BareOutput.MAX_VARINT_BYTES; i++) {
+            if (in.readByte() >= 0) {
+                return;
+            }
+        }
+        throw new BareException("Decoding uint exceeding 64 bits");
+    }
+
+    public void skipString() throws IOException, BareException {
+        in.skip(dataLength());
+    }
+
+    public void skipData() throws IOException, BareException {
+        in.skip(dataLength());
+    }
+
+    private int dataLength() throws IOException, BareException {
+        int length = variadicUintAsInt();
         if (length > MaxSliceLength) {
             throw new BareException(String.format("Decoding slice with length %d > %d max length", length, MaxSliceLength));
         }
-        var result = new Byte[length];
-        for (int i=0; i < length; i++) {
-            result[i] = is.readByte();
-        }
-        return result;
+        return length;
     }
 }
@@ -1,26 +1,99 @@
 package org.nobloat.bare;
 
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.NotSerializableException;
 import java.io.OutputStream;
 import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 
 public class PrimitiveBareEncoder {
-    private final DataOutputStream os;
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    final BareOutput os;
     private static final BigInteger UNSIGNED_LONG_MASK = BigInteger.ONE.shiftLeft(Long.SIZE).subtract(BigInteger.ONE);
-    private final boolean verifyInput;
+    final boolean verifyInput;
 
     public PrimitiveBareEncoder(OutputStream os, boolean verifyInput) {
         this.verifyInput = verifyInput;
-        this.os = new DataOutputStream(os);
+        this.os = new BareOutput.Stream(os);
     }
 
     public PrimitiveBareEncoder(OutputStream os) {
         this(os, true);
     }
 
+    public PrimitiveBareEncoder(OutputStream os, int bufferSize, boolean verifyInput) {
+        this.verifyInput = verifyInput;
+        this.os = new BareOutput.Buffer(bufferSize, os);
+    }
+
+    /**
+     * Creates an encoder collecting bytes in a direct buffer of {@code bufferSize} bytes that is written to the
+     * blocking {@code channel} when full and on {@link #flush()}.
+     */
+    public PrimitiveBareEncoder(WritableByteChannel channel, int bufferSize, boolean verifyInput) {
+        this.verifyInput = verifyInput;
+        this.os = new BareOutput.Channel(channel, bufferSize);
+    }
+
+    public PrimitiveBareEncoder(int initialCapacity, boolean verifyInput) {
+        this((OutputStream) null, initialCapacity, verifyInput);
+    }
+
+    public PrimitiveBareEncoder() {
+        this(DEFAULT_BUFFER_SIZE, true);
+    }
+
+    public void flush() throws IOException {
+        os.flush();
+    }
+
+    public int size() {
+        return buffer().count;
+    }
+
+    public byte[] toByteArray() {
+        return buffer().toByteArray();
+    }
+
+    public void writeTo(OutputStream target) throws IOException {
+        buffer().writeTo(target);
+    }
+
+    public void reset() {
+        buffer().count = 0;
+    }
+
+    public void reset(OutputStream target) {
+        if (os instanceof BareOutput.Stream) {
+            ((BareOutput.Stream) os).reset(target);
+        } else if (os instanceof BareOutput.Buffer) {
+            ((BareOutput.Buffer) os).reset(target);
+        } else {
+            ((BareOutput.Channel) os).reset(Channels.newChannel(target));
+        }
+    }
+
+    /**
+     * Rebinds the encoder to {@code target} and discards buffered bytes. Encoders that were not created for a
+     * channel write to it through {@link Channels#newOutputStream(WritableByteChannel)}.
+     */
+    public void reset(WritableByteChannel target) {
+        if (os instanceof BareOutput.Channel) {
+            ((BareOutput.Channel) os).reset(target);
+        } else {
+            reset(Channels.newOutputStream(target));
+        }
+    }
+
+    private BareOutput.Buffer buffer() {
+        if (os instanceof BareOutput.Buffer) {
+            return (BareOutput.Buffer) os;
+        }
+        throw new UnsupportedOperationException("Encoder writes directly to its OutputStream and holds no buffer");
+    }
+
     public void u8(byte b) throws IOException {
         os.writeByte(b);
     }
@@ -36,14 +109,14 @@ public class PrimitiveBareEncoder {
         if (verifyInput && b > 65535) {
             throw new BareException("u16 must not exceed value of 65535");
         }
-        os.write(new byte[]{(byte) b, (byte) (b >> 8)});
+        os.writeShort((short) b);
     }
 
     public void u32(long b) throws IOException, BareException {
         if (verifyInput && b > 4294967295L) {
             throw new BareException("u16 must not exceed value of 4294967295");
         }
-        os.write(new byte[]{(byte) b, (byte) (b >> 8), (byte) (b >> 16), (byte) (b >> 24)});
+        os.writeInt((int) b);
     }
 
     public void u64(BigInteger b) throws IOException, BareException {
@@ -53,6 +126,10 @@ public class PrimitiveBareEncoder {
         i64(b.and(UNSIGNED_LONG_MASK).longValue());
     }
 
+    public void u64AsLong(long b) throws IOException {
+        os.writeLong(b);
+    }
+
     public void i8(short b) throws IOException, BareException {
         if (verifyInput && b > 128 || b < -127) {
             throw new BareException("i8 must not exceed range between 255 and -255");
@@ -73,9 +150,7 @@ public class PrimitiveBareEncoder {
     }
 
     public void i64(long b) throws IOException {
-        os.write(new byte[]{(byte) b, (byte) (b >> 8), (byte) (b >> 16), (byte) (b >> 24),
-                (byte) (b >> 32), (byte) (b >> 40), (byte) (b >> 48), (byte) (b >> 56)
-        });
+        os.writeLong(b);
     }
 
     public void f32(float b) throws IOException, BareException {
@@ -96,21 +171,39 @@ public class PrimitiveBareEncoder {
 
     public void data(byte[] data) throws IOException, BareException {
         variadicUInt(data.length);
+        os.write(data, 0, data.length);
+    }
+
+    /**
+     * Writes the remaining bytes of {@code data} without changing its position.
+     */
+    public void data(ByteBuffer data) throws IOException, BareException {
+        variadicUInt(data.remaining());
         os.write(data);
     }
 
     public void data(Byte[] data) throws IOException, BareException {
         variadicUInt(data.length);
-        for(var b : data) {
-            os.write(b);
+        int offset = 0;
+        while (offset < data.length) {
+            int count = os.claim(Byte.BYTES, data.length - offset);
+            byte[] target = os.chunk();
+            int position = os.chunkPosition();
+            for (int i = 0; i < count; i++) {
+                target[position + i] = data[offset + i];
+            }
+            os.commit(count);
+            offset += count;
         }
     }
 
     public void string(String s) throws IOException, BareException {
         if (s == null) {
-            data(new byte[]{});
+            variadicUInt(0);
         } else {
-            data(s.getBytes(StandardCharsets.UTF_8));
+            int length = Utf8.encodedLength(s);
+            variadicUInt(length);
+            os.writeUtf8(s, length);
         }
     }
 
@@ -122,13 +215,17 @@ public class PrimitiveBareEncoder {
             throw new BareException("value for variadicUint must not be negative: " + value);
         }
 
+        if (value.signum() >= 0 && value.bitLength() <= Long.SIZE) {
+            return os.writeVarint(value.longValue());
+        }
+
         int i = 0;
         while (value.longValue() >= 0x80) {
-            os.write((byte) (value.longValue() | 0x80));
+            os.writeByte((byte) (value.longValue() | 0x80));
             value = value.shiftRight(7);
             i++;
         }
-        os.write((byte) value.longValue());
+        os.writeByte((byte) value.longValue());
         return i + 1;
     }
 
@@ -136,14 +233,11 @@ public class PrimitiveBareEncoder {
         if (verifyInput && value < 0) {
             throw new BareException("value for variadicUint must not be negative: " + value);
         }
-        int i = 0;
-        while (value >= 0x80) {
-            os.write((byte) (value | 0x80));
-            value >>= 7;
-            i++;
-        }
-        os.write((byte) value);
-        return i + 1;
+        return os.writeVarint(value);
+    }
+
+    public int variadicUIntAsLong(long value) throws IOException {
+        return os.writeVarint(value);
     }
 
     public int variadicInt(long value) throws IOException, BareException {
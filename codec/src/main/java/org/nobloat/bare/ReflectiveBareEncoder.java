@@ -0,0 +1,96 @@
+package org.nobloat.bare;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Encodes annotated classes with the type mappings of {@link ReflectiveBareDecoder}. Classes are resolved once into
+ * a cached plan, so encoding a value does no reflective lookups.
+ */
+public class ReflectiveBareEncoder extends AggregateBareEncoder {
+
+    public ReflectiveBareEncoder(OutputStream os) {
+        super(os);
+    }
+
+    public ReflectiveBareEncoder(OutputStream os, int bufferSize) {
+        super(os, bufferSize);
+    }
+
+    public ReflectiveBareEncoder(WritableByteChannel channel, int bufferSize) {
+        super(channel, bufferSize);
+    }
+
+    public ReflectiveBareEncoder() {
+        super();
+    }
+
+    public void optional(Optional<?> value) throws IOException, ReflectiveOperationException, BareException {
+        bool(value.isPresent());
+        if (value.isPresent()) {
+            writeType(value.get());
+        }
+    }
+
+    public void slice(List<?> values) throws IOException, ReflectiveOperationException, BareException {
+        variadicUInt(values.size());
+        for (var value : values) {
+            writeType(value);
+        }
+    }
+
+    public void array(Object[] values) throws IOException, ReflectiveOperationException, BareException {
+        for (var value : values) {
+            writeType(value);
+        }
+    }
+
+    public void map(Map<?, ?> values) throws IOException, ReflectiveOperationException, BareException {
+        variadicUInt(values.size());
+        for (var entry : values.entrySet()) {
+            EncodePlan.of(entry.getKey().getClass()).encodePrimitive(this, entry.getKey());
+            writeType(entry.getValue());
+        }
+    }
+
+    public void union(Union value) throws IOException, ReflectiveOperationException, BareException {
+        variadicUInt(value.type());
+        writeType(value.value);
+    }
+
+    /**
+     * Writes {@code value} as union variant identified by the {@link Union.Id} annotation of its class.
+     */
+    public void union(Object value) throws IOException, ReflectiveOperationException, BareException {
+        var plan = EncodePlan.of(value.getClass());
+        variadicUInt(plan.unionId());
+        plan.encode(this, value);
+    }
+
+    public void enumeration(Enum<?> value) throws IOException, ReflectiveOperationException, BareException {
+        EncodePlan.of(value.getDeclaringClass()).encodeEnum(this, value);
+    }
+
+    /**
+     * Encodes the public instance fields of {@code value} in declaration order, or the components of a record.
+     */
+    public void struct(Object value) throws IOException, ReflectiveOperationException, BareException {
+        EncodePlan.of(value.getClass()).encodeStruct(this, value);
+    }
+
+    public void writePrimitiveType(Object value) throws IOException, BareException {
+        EncodePlan.of(value.getClass()).encodePrimitive(this, value);
+    }
+
+    public void writeType(Object value) throws IOException, ReflectiveOperationException, BareException {
+        writeType(value instanceof Enum ? ((Enum<?>) value).getDeclaringClass() : value.getClass(), value);
+    }
+
+    void writeType(Class<?> type, Object value) throws IOException, ReflectiveOperationException, BareException {
+        EncodePlan.of(type).encode(this, value);
+    }
+}
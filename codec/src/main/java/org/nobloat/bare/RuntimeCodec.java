@@ -0,0 +1,427 @@
+package org.nobloat.bare;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Decoder and encoder for a class with the type mappings of {@link ReflectiveBareDecoder}, compiled once at runtime.
+ * <p>
+ * The public instance fields are resolved when the codec is created and composed into one method handle tree per
+ * direction that constructs the instance and reads every field, or writes every field, in declaration order. There is
+ * no per-value dispatch apart from nested structs, which are looked up in the codec cache. Integer fields must carry
+ * an {@link Int} annotation matching their type, fixed size array fields must be initialized by the constructor.
+ * <p>
+ * {@link #decode(AggregateBareDecoder)} and {@link #encode(Object, AggregateBareEncoder)} fit
+ * {@link AggregateBareDecoder.DecodeFunction} and {@link ParallelEncoder.MessageEncoder}.
+ */
+public final class RuntimeCodec<T> {
+
+    private static final ClassValue<RuntimeCodec<?>> CODECS = new ClassValue<>() {
+        @Override
+        protected RuntimeCodec<?> computeValue(Class<?> type) {
+            return new RuntimeCodec<>(type);
+        }
+    };
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType DECODE = methodType(Object.class, AggregateBareDecoder.class);
+    private static final MethodType ENCODE = methodType(void.class, AggregateBareEncoder.class, Object.class);
+
+    private static final MethodHandle DECODE_SLICE = helper("decodeSlice", List.class, AggregateBareDecoder.class, MethodHandle.class);
+    private static final MethodHandle DECODE_MAP = helper("decodeMap", Map.class, AggregateBareDecoder.class, MethodHandle.class, MethodHandle.class);
+    private static final MethodHandle DECODE_OPTIONAL = helper("decodeOptional", Optional.class, AggregateBareDecoder.class, MethodHandle.class);
+    private static final MethodHandle DECODE_ARRAY = helper("decodeArray", Object[].class, AggregateBareDecoder.class, MethodHandle.class, Class.class, int.class);
+    private static final MethodHandle DECODE_ENUM = helper("decodeEnum", Object.class, AggregateBareDecoder.class, Map.class);
+    private static final MethodHandle DECODE_STRUCT = helper("decodeStruct", Object.class, AggregateBareDecoder.class, Class.class);
+    private static final MethodHandle ENCODE_SLICE = helper("encodeSlice", void.class, AggregateBareEncoder.class, List.class, MethodHandle.class);
+    private static final MethodHandle ENCODE_MAP = helper("encodeMap", void.class, AggregateBareEncoder.class, Map.class, MethodHandle.class, MethodHandle.class);
+    private static final MethodHandle ENCODE_OPTIONAL = helper("encodeOptional", void.class, AggregateBareEncoder.class, Optional.class, MethodHandle.class);
+    private static final MethodHandle ENCODE_ARRAY = helper("encodeArray", void.class, AggregateBareEncoder.class, Object[].class, MethodHandle.class);
+    private static final MethodHandle ENCODE_ENUM = helper("encodeEnum", void.class, AggregateBareEncoder.class, Object.class, long[].class);
+    private static final MethodHandle ENCODE_STRUCT = helper("encodeStruct", void.class, AggregateBareEncoder.class, Object.class, Class.class);
+    private static final MethodHandle UNSIGNED_BYTE = helper("unsignedByte", int.class, byte.class);
+
+    private final Class<T> type;
+    private final Union.Id unionId;
+    private final MethodHandle decoder;
+    private final MethodHandle encoder;
+
+    private RuntimeCodec(Class<T> type) {
+        this.type = type;
+        this.unionId = type.getAnnotation(Union.Id.class);
+        if (type.isEnum() || type.isPrimitive() || type.isArray() || type.isInterface()) {
+            throw new IllegalArgumentException(type.getName() + " is not a struct");
+        }
+        try {
+            var fields = new ArrayList<Field>();
+            for (var field : type.getFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    fields.add(accessible(field));
+                }
+            }
+            var constructor = accessible(type.getConstructor());
+            Object prototype = null;
+            for (var field : fields) {
+                if (field.getType().isArray()) {
+                    prototype = constructor.newInstance();
+                    break;
+                }
+            }
+            this.decoder = decodeHandle(LOOKUP.unreflectConstructor(constructor), fields, prototype);
+            this.encoder = encodeHandle(fields);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException("Cannot create codec for " + type.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the codec of {@code type}, creating it on first use.
+     *
+     * @throws IllegalArgumentException if {@code type} has no public no-arg constructor or unsupported fields
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RuntimeCodec<T> of(Class<T> type) {
+        return (RuntimeCodec<T>) CODECS.get(type);
+    }
+
+    public Class<T> type() {
+        return type;
+    }
+
+    public T decode(AggregateBareDecoder decoder) throws IOException, BareException {
+        return type.cast(decode(this.decoder, decoder));
+    }
+
+    public void encode(T value, AggregateBareEncoder encoder) throws IOException, BareException {
+        encode(this.encoder, encoder, value);
+    }
+
+    /**
+     * Decodes a union of the given {@link Union.Id} annotated variants.
+     */
+    public static Union decodeUnion(AggregateBareDecoder decoder, Class<?>... variants) throws IOException, BareException {
+        var union = new Union(variants);
+        int type = decoder.variadicUintAsInt();
+        union.set(type, of(union.type(type)).decode(decoder));
+        return union;
+    }
+
+    /**
+     * Encodes {@code value} as union variant identified by the {@link Union.Id} annotation of its class.
+     */
+    @SuppressWarnings("unchecked")
+    public static void encodeUnion(Object value, AggregateBareEncoder encoder) throws IOException, BareException {
+        var codec = (RuntimeCodec<Object>) of(value.getClass());
+        if (codec.unionId == null) {
+            throw new UnsupportedOperationException("Missing annotation @Union.Id on " + codec.type.getName());
+        }
+        encoder.variadicUInt(codec.unionId.value());
+        codec.encode(value, encoder);
+    }
+
+    // (AggregateBareDecoder) -> Object: construct, then fold every field step over the instance
+    private static MethodHandle decodeHandle(MethodHandle constructor, List<Field> fields, Object prototype) throws ReflectiveOperationException {
+        var type = constructor.type().returnType();
+        var body = MethodHandles.dropArguments(MethodHandles.identity(type), 1, AggregateBareDecoder.class);
+        for (int i = fields.size() - 1; i >= 0; i--) {
+            var field = fields.get(i);
+            var reader = fieldReader(field, prototype).asType(methodType(field.getType(), AggregateBareDecoder.class));
+            body = MethodHandles.foldArguments(body, MethodHandles.filterArguments(LOOKUP.unreflectSetter(field), 1, reader));
+        }
+        return MethodHandles.foldArguments(body, MethodHandles.dropArguments(constructor, 0, AggregateBareDecoder.class)).asType(DECODE);
+    }
+
+    // (AggregateBareEncoder, Object) -> void: every field step in order
+    private MethodHandle encodeHandle(List<Field> fields) throws ReflectiveOperationException {
+        var body = MethodHandles.empty(methodType(void.class, AggregateBareEncoder.class, type));
+        for (int i = fields.size() - 1; i >= 0; i--) {
+            var field = fields.get(i);
+            var writer = fieldWriter(field).asType(methodType(void.class, AggregateBareEncoder.class, field.getType()));
+            body = MethodHandles.foldArguments(body, MethodHandles.filterArguments(writer, 1, LOOKUP.unreflectGetter(field)));
+        }
+        return body.asType(ENCODE);
+    }
+
+    private static MethodHandle fieldReader(Field field, Object prototype) throws ReflectiveOperationException {
+        var type = field.getType();
+        if (isInteger(field)) {
+            var reader = decoderMethod(integerMethods(field)[0]);
+            if (isWideU8(field)) {
+                reader = MethodHandles.filterReturnValue(reader, UNSIGNED_BYTE);
+            }
+            return MethodHandles.explicitCastArguments(reader, reader.type().changeReturnType(primitive(type)));
+        }
+        if (type.isArray()) {
+            var component = type.getComponentType();
+            int length = Array.getLength(field.get(prototype));
+            return MethodHandles.insertArguments(DECODE_ARRAY, 1, reader(component), component, length);
+        }
+        if (type == List.class) {
+            return MethodHandles.insertArguments(DECODE_SLICE, 1, reader(typeArgument(field, 0)));
+        }
+        if (type == Map.class) {
+            return MethodHandles.insertArguments(DECODE_MAP, 1, reader(typeArgument(field, 0)), reader(typeArgument(field, 1)));
+        }
+        if (type == Optional.class) {
+            return MethodHandles.insertArguments(DECODE_OPTIONAL, 1, reader(typeArgument(field, 0)));
+        }
+        return reader(type);
+    }
+
+    private static MethodHandle fieldWriter(Field field) throws ReflectiveOperationException {
+        var type = field.getType();
+        if (isInteger(field)) {
+            var methods = integerMethods(field);
+            var parameter = isWideU8(field) ? short.class : PrimitiveBareDecoder.class.getMethod(methods[0]).getReturnType();
+            var writer = encoderMethod(methods[1], parameter);
+            return MethodHandles.explicitCastArguments(writer, writer.type().changeParameterType(1, primitive(type)));
+        }
+        if (type.isArray()) {
+            return MethodHandles.insertArguments(ENCODE_ARRAY, 2, writer(type.getComponentType()));
+        }
+        if (type == List.class) {
+            return MethodHandles.insertArguments(ENCODE_SLICE, 2, writer(typeArgument(field, 0)));
+        }
+        if (type == Map.class) {
+            return MethodHandles.insertArguments(ENCODE_MAP, 2, writer(typeArgument(field, 0)), writer(typeArgument(field, 1)));
+        }
+        if (type == Optional.class) {
+            return MethodHandles.insertArguments(ENCODE_OPTIONAL, 2, writer(typeArgument(field, 0)));
+        }
+        return writer(type);
+    }
+
+    private static boolean isInteger(Field field) {
+        return field.isAnnotationPresent(Int.class) || ReflectiveBareDecoder.INTEGER_TYPES.contains(field.getType().getName());
+    }
+
+    /**
+     * Returns the primitive type of a primitive or wrapper field type, the integer field type itself otherwise. Integer
+     * fields may be declared wider or narrower than the decoder return type, they are converted with an explicit cast.
+     */
+    private static Class<?> primitive(Class<?> type) {
+        return methodType(type).unwrap().returnType();
+    }
+
+    // u8 into a field wider than byte holds 0..255, read it unsigned and write it through the range checked u8(short)
+    private static boolean isWideU8(Field field) {
+        var primitive = primitive(field.getType());
+        return field.getAnnotation(Int.class).value() == Int.Type.u8 && primitive != byte.class && primitive.isPrimitive();
+    }
+
+    /**
+     * Returns the decoder and encoder method names for an {@link Int} annotated field.
+     */
+    private static String[] integerMethods(Field field) {
+        var annotation = field.getAnnotation(Int.class);
+        if (annotation == null) {
+            throw new IllegalArgumentException("Missing @Int type annotation on number field: " + field.getName());
+        }
+        boolean isBig = field.getType() == BigInteger.class;
+        switch (annotation.value()) {
+            case i8: return new String[]{"i8", "i8"};
+            case u8: return new String[]{"u8", "u8"};
+            case i16: return new String[]{"i16", "i16"};
+            case u16: return new String[]{"u16", "u16"};
+            case i32: return new String[]{"i32", "i32"};
+            case u32: return new String[]{"u32", "u32"};
+            case u64: return isBig ? new String[]{"u64", "u64"} : new String[]{"u64AsLong", "u64AsLong"};
+            case i64: return new String[]{"i64", "i64"};
+            case i: return new String[]{"variadicInt", "variadicInt"};
+            case ui: return isBig ? new String[]{"variadicUint", "variadicUInt"} : new String[]{"variadicUintAsLong", "variadicUIntAsLong"};
+            default:
+                throw new IllegalArgumentException("Unknown Int type: " + annotation.value());
+        }
+    }
+
+    // (AggregateBareDecoder) -> Object for slice items, map keys and values, optionals and array components
+    private static MethodHandle reader(Class<?> type) throws ReflectiveOperationException {
+        MethodHandle reader;
+        if (type == String.class) {
+            reader = decoderMethod("string");
+        } else if (type == Boolean.class || type == boolean.class) {
+            reader = decoderMethod("bool");
+        } else if (type == Byte.class) {
+            reader = decoderMethod("i8");
+        } else if (type == Float.class || type == float.class) {
+            reader = decoderMethod("f32");
+        } else if (type == Double.class || type == double.class) {
+            reader = decoderMethod("f64");
+        } else if (type.isEnum()) {
+            var field = type.getField("value");
+            var constants = new HashMap<Integer, Object>();
+            for (var constant : type.getEnumConstants()) {
+                constants.putIfAbsent(((Number) accessible(field).get(constant)).intValue(), constant);
+            }
+            reader = MethodHandles.insertArguments(DECODE_ENUM, 1, constants);
+        } else {
+            reader = MethodHandles.insertArguments(DECODE_STRUCT, 1, type);
+        }
+        return reader.asType(DECODE);
+    }
+
+    // (AggregateBareEncoder, Object) -> void, the counterpart of reader
+    private static MethodHandle writer(Class<?> type) throws ReflectiveOperationException {
+        MethodHandle writer;
+        if (type == String.class) {
+            writer = encoderMethod("string", String.class);
+        } else if (type == Boolean.class || type == boolean.class) {
+            writer = encoderMethod("bool", boolean.class);
+        } else if (type == Byte.class) {
+            writer = encoderMethod("i8", byte.class);
+        } else if (type == Float.class || type == float.class) {
+            writer = encoderMethod("f32", float.class);
+        } else if (type == Double.class || type == double.class) {
+            writer = encoderMethod("f64", double.class);
+        } else if (type.isEnum()) {
+            var field = accessible(type.getField("value"));
+            var constants = type.getEnumConstants();
+            var values = new long[constants.length];
+            for (int i = 0; i < constants.length; i++) {
+                values[i] = ((Number) field.get(constants[i])).longValue();
+            }
+            writer = MethodHandles.insertArguments(ENCODE_ENUM, 2, (Object) values);
+        } else {
+            writer = MethodHandles.insertArguments(ENCODE_STRUCT, 2, type);
+        }
+        return writer.asType(ENCODE);
+    }
+
+    private static MethodHandle decoderMethod(String name) throws ReflectiveOperationException {
+        var handle = LOOKUP.unreflect(PrimitiveBareDecoder.class.getMethod(name));
+        return handle.asType(handle.type().changeParameterType(0, AggregateBareDecoder.class));
+    }
+
+    private static MethodHandle encoderMethod(String name, Class<?> parameter) throws ReflectiveOperationException {
+        var handle = LOOKUP.unreflect(PrimitiveBareEncoder.class.getMethod(name, parameter));
+        return handle.asType(methodType(void.class, AggregateBareEncoder.class, parameter));
+    }
+
+    private static Class<?> typeArgument(Field field, int index) {
+        return (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[index];
+    }
+
+    private static <A extends AccessibleObject> A accessible(A member) {
+        member.setAccessible(true);
+        return member;
+    }
+
+    private static MethodHandle helper(String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return LOOKUP.findStatic(RuntimeCodec.class, name, methodType(returnType, parameters));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int unsignedByte(byte value) {
+        return Byte.toUnsignedInt(value);
+    }
+
+    private static Object decode(MethodHandle reader, AggregateBareDecoder decoder) throws IOException, BareException {
+        try {
+            return (Object) reader.invokeExact(decoder);
+        } catch (IOException | BareException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private static void encode(MethodHandle writer, AggregateBareEncoder encoder, Object value) throws IOException, BareException {
+        try {
+            writer.invokeExact(encoder, value);
+        } catch (IOException | BareException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private static List<Object> decodeSlice(AggregateBareDecoder decoder, MethodHandle item) throws IOException, BareException {
+        return decoder.slice(d -> decode(item, d));
+    }
+
+    private static Map<Object, Object> decodeMap(AggregateBareDecoder decoder, MethodHandle key, MethodHandle value) throws IOException, BareException {
+        return decoder.map(d -> decode(key, d), d -> decode(value, d));
+    }
+
+    private static Optional<Object> decodeOptional(AggregateBareDecoder decoder, MethodHandle item) throws IOException, BareException {
+        return decoder.optional(d -> decode(item, d));
+    }
+
+    private static Object[] decodeArray(AggregateBareDecoder decoder, MethodHandle item, Class<?> component, int length) throws IOException, BareException {
+        var result = (Object[]) Array.newInstance(component, length);
+        for (int i = 0; i < length; i++) {
+            result[i] = decode(item, decoder);
+        }
+        return result;
+    }
+
+    private static Object decodeEnum(AggregateBareDecoder decoder, Map<Integer, Object> constants) throws IOException, BareException {
+        int value = decoder.variadicUintAsInt();
+        var constant = constants.get(value);
+        if (constant == null) {
+            throw new BareException("Unexpected enum value: " + value);
+        }
+        return constant;
+    }
+
+    private static Object decodeStruct(AggregateBareDecoder decoder, Class<?> type) throws IOException, BareException {
+        return of(type).decode(decoder);
+    }
+
+    private static void encodeSlice(AggregateBareEncoder encoder, List<?> values, MethodHandle item) throws IOException, BareException {
+        encoder.variadicUInt(values.size());
+        for (var value : values) {
+            encode(item, encoder, value);
+        }
+    }
+
+    private static void encodeMap(AggregateBareEncoder encoder, Map<?, ?> values, MethodHandle key, MethodHandle value) throws IOException, BareException {
+        encoder.variadicUInt(values.size());
+        for (var entry : values.entrySet()) {
+            encode(key, encoder, entry.getKey());
+            encode(value, encoder, entry.getValue());
+        }
+    }
+
+    private static void encodeOptional(AggregateBareEncoder encoder, Optional<?> value, MethodHandle item) throws IOException, BareException {
+        boolean present = value != null && value.isPresent();
+        encoder.bool(present);
+        if (present) {
+            encode(item, encoder, value.get());
+        }
+    }
+
+    private static void encodeArray(AggregateBareEncoder encoder, Object[] values, MethodHandle item) throws IOException, BareException {
+        for (var value : values) {
+            encode(item, encoder, value);
+        }
+    }
+
+    private static void encodeEnum(AggregateBareEncoder encoder, Object constant, long[] values) throws IOException, BareException {
+        encoder.variadicUInt(values[((Enum<?>) constant).ordinal()]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void encodeStruct(AggregateBareEncoder encoder, Object value, Class<?> type) throws IOException, BareException {
+        ((RuntimeCodec<Object>) of(type)).encode(value, encoder);
+    }
+}
@@ -0,0 +1,18 @@
+package org.nobloat.bare;
+
+/**
+ * Wraps a {@link BareException} thrown while decoding lazily, e.g. from an {@link java.util.Iterator}.
+ */
+public class UncheckedBareException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedBareException(BareException cause) {
+        super(cause);
+    }
+
+    @Override
+    public synchronized BareException getCause() {
+        return (BareException) super.getCause();
+    }
+}
@@ -0,0 +1,36 @@
+package org.nobloat.bare;
+
+import java.math.BigInteger;
+
+/**
+ * Helpers for {@code u64} and {@code uint} values mapped to a {@code long} holding the unsigned bits.
+ */
+public final class Unsigned {
+
+    private Unsigned() {
+    }
+
+    public static int compare(long a, long b) {
+        return Long.compareUnsigned(a, b);
+    }
+
+    public static String toString(long value) {
+        return Long.toUnsignedString(value);
+    }
+
+    public static long parse(String value) {
+        return Long.parseUnsignedLong(value);
+    }
+
+    public static BigInteger toBigInteger(long value) {
+        var result = BigInteger.valueOf(value & Long.MAX_VALUE);
+        return value < 0 ? result.setBit(Long.SIZE - 1) : result;
+    }
+
+    public static long fromBigInteger(BigInteger value) throws BareException {
+        if (value.signum() < 0 || value.bitLength() > Long.SIZE) {
+            throw new BareException("value does not fit into 64 unsigned bits: " + value);
+        }
+        return value.longValue();
+    }
+}
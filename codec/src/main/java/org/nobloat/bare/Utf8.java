@@ -0,0 +1,99 @@
+package org.nobloat.bare;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 helpers for strings, matching {@link String#getBytes(java.nio.charset.Charset)} for unpaired surrogates.
+ */
+final class Utf8 {
+
+    static final int MAX_BYTES_PER_CHAR = 4;
+
+    private Utf8() {
+    }
+
+    static int encodedLength(String s) {
+        int length = s.length();
+        int result = length;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                result += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                result += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                result += 2;
+            }
+        }
+        return result;
+    }
+
+    static String decode(byte[] bytes, int offset, int length, boolean validate) throws BareException {
+        if (isAscii(bytes, offset, length)) {
+            return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        }
+        if (validate && !isValid(bytes, offset, length)) {
+            throw new BareException("Decoding string with invalid UTF-8 sequence");
+        }
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    static boolean isAscii(byte[] bytes, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isValid(byte[] bytes, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        while (i < end) {
+            int b = bytes[i++] & 0xFF;
+            if (b < 0x80) {
+                continue;
+            }
+            int continuations;
+            int min = 0x80;
+            int max = 0xBF;
+            if (b >= 0xC2 && b <= 0xDF) {
+                continuations = 1;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                continuations = 2;
+                if (b == 0xE0) {
+                    min = 0xA0;
+                } else if (b == 0xED) {
+                    max = 0x9F;
+                }
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                continuations = 3;
+                if (b == 0xF0) {
+                    min = 0x90;
+                } else if (b == 0xF4) {
+                    max = 0x8F;
+                }
+            } else {
+                return false;
+            }
+            if (end - i < continuations) {
+                return false;
+            }
+            int next = bytes[i++] & 0xFF;
+            if (next < min || next > max) {
+                return false;
+            }
+            for (int c = 1; c < continuations; c++) {
+                if ((bytes[i++] & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -2,12 +2,25 @@ package org.nobloat.bare;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.nobloat.bare.TestUtil.fromInts;
 
 class AggregateBareDecoderTest {
@@ -140,4 +153,198 @@ class AggregateBareDecoderTest {
         assertThrows(BareException.class, () ->  new AggregateBareDecoder(fromInts(0x03, 0x71, 0x2D, 0xA7, 0x44))
                 .union(Map.of(0, PrimitiveBareDecoder::f32, 1, PrimitiveBareDecoder::string)));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBufferSlice() throws IOException, BareException {
+        var decoder = new AggregateBareDecoder(TestUtil.bytesFromInts(0x02, 0x05, 0x50, 0x65, 0x74, 0x65, 0x72, 0x1E, 0x03, 0x41, 0x6e, 0x6e, 0x1F));
+        var result = decoder.slice(TestClasses.SimplePerson::decode);
+
+        assertEquals(2, result.size());
+        assertEquals("Peter", result.get(0).name);
+        assertEquals(30, result.get(0).age);
+        assertEquals("Ann", result.get(1).name);
+        assertEquals(31, result.get(1).age);
+    }
+
+    @Test
+    void testPrimitiveArrays() throws IOException, BareException {
+        var bytes = TestUtil.bytesFromInts(0x02, 0x01, 0x00, 0xFE, 0xFF,
+                0x02, 0x07, 0x00, 0x00, 0x00, 0xF8, 0xFF, 0xFF, 0xFF,
+                0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0xFE, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF,
+                0x01, 0x71, 0x2D, 0xA7, 0x44,
+                0x9B, 0x6C, 0xC9, 0x20, 0xF0, 0x21, 0x3F, 0x42);
+
+        var direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        for (var decoder : List.of(new AggregateBareDecoder(new ByteArrayInputStream(bytes)), new AggregateBareDecoder(bytes), new AggregateBareDecoder(direct))) {
+            assertArrayEquals(new short[]{1, -2}, decoder.i16Slice());
+            assertArrayEquals(new int[]{7, -8}, decoder.i32Slice());
+            assertArrayEquals(new long[]{1L, -2L}, decoder.i64Array(2));
+            assertArrayEquals(new float[]{1337.42f}, decoder.f32Slice());
+            assertArrayEquals(new double[]{133713371337.42424242}, decoder.f64Array(1));
+            assertThrows(EOFException.class, () -> decoder.i32Array(1));
+        }
+    }
+
+    @Test
+    void testLargePrimitiveSlice() throws IOException, BareException {
+        var encoder = new AggregateBareEncoder();
+        var values = new double[3000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i / 3.0;
+        }
+        encoder.f64Slice(values);
+
+        assertArrayEquals(values, new AggregateBareDecoder(new ByteArrayInputStream(encoder.toByteArray())).f64Slice());
+
+        var decoder = new AggregateBareDecoder(encoder.toByteArray());
+        decoder.MaxSliceLength = 2999;
+        assertThrows(BareException.class, decoder::f64Slice);
+    }
+
+    @Test
+    public void testSkipAggregates() throws IOException, BareException {
+        var encoder = new AggregateBareEncoder();
+        encoder.optional(Optional.of("skipped"), encoder::string);
+        encoder.optional(Optional.<String>empty(), encoder::string);
+        encoder.slice(List.of("a", "bc"), encoder::string);
+        encoder.i32Slice(new int[]{1, 2, 3});
+        encoder.map(Map.of("key", 1L, "other", 2L), encoder::string, encoder::i64);
+        encoder.variadicUInt(2);
+        encoder.string("union");
+        encoder.i8((byte) 0x42);
+
+        var decoder = new AggregateBareDecoder(encoder.toByteArray());
+        decoder.skipOptional(AggregateBareDecoder::skipString);
+        decoder.skipOptional(AggregateBareDecoder::skipString);
+        decoder.skipSlice(AggregateBareDecoder::skipString);
+        decoder.skipSlice(Integer.BYTES);
+        decoder.skipMap(AggregateBareDecoder::skipString, d -> d.skip(Long.BYTES));
+        decoder.skipUnion(Map.of(1, d -> d.skip(Long.BYTES), 2, AggregateBareDecoder::skipString));
+        assertEquals(0x42, decoder.i8());
+    }
+
+    @Test
+    public void testSkipMapTooLong() {
+        var decoder = new AggregateBareDecoder(fromInts(0x03));
+        decoder.MaxMapLength = 2;
+        assertThrows(BareException.class, () -> decoder.skipMap(AggregateBareDecoder::skipString, AggregateBareDecoder::skipString));
+    }
+
+    @Test
+    public void testSliceIterator() throws IOException, BareException {
+        var encoder = new AggregateBareEncoder();
+        encoder.variadicUInt(100000);
+        for (int i = 0; i < 100000; i++) {
+            encoder.i32(i);
+        }
+        encoder.i8((byte) 0x42);
+
+        var decoder = new AggregateBareDecoder(new ByteArrayInputStream(encoder.toByteArray()));
+        var iterator = decoder.sliceIterator(AggregateBareDecoder::i32);
+        long sum = 0;
+        int count = 0;
+        while (iterator.hasNext()) {
+            sum += iterator.next();
+            count++;
+        }
+        assertEquals(100000, count);
+        assertEquals(4999950000L, sum);
+        assertThrows(NoSuchElementException.class, iterator::next);
+        assertEquals(0x42, decoder.i8());
+
+        decoder = new AggregateBareDecoder(encoder.toByteArray());
+        assertEquals(4999950000L, decoder.sliceStream(AggregateBareDecoder::i32).mapToLong(Integer::longValue).sum());
+        assertEquals(0x42, decoder.i8());
+    }
+
+    @Test
+    public void testMapStream() throws IOException, BareException {
+        var encoder = new AggregateBareEncoder();
+        encoder.map(Map.of("a", 1L, "b", 2L), encoder::string, encoder::i64);
+
+        var decoder = new AggregateBareDecoder(encoder.toByteArray());
+        var result = decoder.mapStream(AggregateBareDecoder::string, AggregateBareDecoder::i64)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        assertEquals(Map.of("a", 1L, "b", 2L), result);
+
+        decoder = new AggregateBareDecoder(encoder.toByteArray());
+        var iterator = decoder.mapIterator(AggregateBareDecoder::string, AggregateBareDecoder::i64);
+        assertTrue(iterator.hasNext());
+        assertTrue(Map.of("a", 1L, "b", 2L).containsKey(iterator.next().getKey()));
+    }
+
+    @Test
+    public void testSliceStreamErrors() throws IOException, BareException {
+        var tooLong = new AggregateBareDecoder(fromInts(0x03));
+        tooLong.MaxSliceLength = 2;
+        assertThrows(BareException.class, () -> tooLong.sliceStream(AggregateBareDecoder::string));
+
+        var truncated = new AggregateBareDecoder(fromInts(0x02, 0x01, 0x61));
+        var iterator = truncated.sliceIterator(AggregateBareDecoder::string);
+        assertEquals("a", iterator.next());
+        assertThrows(UncheckedIOException.class, iterator::next);
+
+        var invalid = new AggregateBareDecoder(fromInts(0x01, 0x01, 0xFF));
+        invalid.ValidateUtf8 = true;
+        var exception = assertThrows(UncheckedBareException.class, () -> invalid.sliceStream(AggregateBareDecoder::string).count());
+        assertEquals(BareException.class, exception.getCause().getClass());
+    }
+
+    @Test
+    public void testParallelSlice() throws IOException, BareException {
+        var encoder = new AggregateBareEncoder();
+        var expected = new ArrayList<String>();
+        for (int i = 0; i < 20000; i++) {
+            expected.add("item" + i);
+        }
+        encoder.slice(expected, encoder::string);
+        encoder.i32Slice(IntStream.range(0, 20000).toArray());
+        encoder.i8((byte) 0x42);
+
+        var decoder = new AggregateBareDecoder(encoder.toByteArray());
+        decoder.ValidateUtf8 = true;
+        assertEquals(expected, decoder.parallelSlice(AggregateBareDecoder::string, AggregateBareDecoder::skipString, new ForkJoinPool(4)));
+        var ints = decoder.parallelSlice(AggregateBareDecoder::i32, Integer.BYTES);
+        assertEquals(20000, ints.size());
+        assertEquals(19999, ints.get(19999));
+        assertEquals(0x42, decoder.i8());
+    }
+
+    @Test
+    public void testParallelSliceErrors() throws IOException, BareException {
+        var encoder = new AggregateBareEncoder();
+        encoder.slice(List.of("a", "b"), encoder::string);
+
+        assertThrows(UnsupportedOperationException.class, () -> new AggregateBareDecoder(new ByteArrayInputStream(encoder.toByteArray()))
+                .parallelSlice(AggregateBareDecoder::string, AggregateBareDecoder::skipString));
+        assertThrows(EOFException.class, () -> new AggregateBareDecoder(encoder.toByteArray())
+                .parallelSlice(AggregateBareDecoder::string, 10));
+        assertThrows(EOFException.class, () -> new AggregateBareDecoder(encoder.toByteArray())
+                .parallelSlice(AggregateBareDecoder::i64, d -> d.skip(1)));
+
+        var header = new AggregateBareEncoder();
+        header.variadicUInt(500000000);
+        header.i8((byte) 1);
+        assertThrows(EOFException.class, () -> new AggregateBareDecoder(header.toByteArray())
+                .parallelSlice(AggregateBareDecoder::string, AggregateBareDecoder::skipString));
+        var limited = new AggregateBareDecoder(header.toByteArray());
+        limited.MaxSliceLength = 1000;
+        assertThrows(BareException.class, () -> limited.parallelSlice(AggregateBareDecoder::string, AggregateBareDecoder::skipString));
+    }
+
+    @Test
+    public void testPrimitiveSliceLengthBeyondInput() throws IOException, BareException {
+        var encoder = new AggregateBareEncoder();
+        encoder.variadicUInt(1000000000);
+        encoder.i64(7L);
+        var bytes = encoder.toByteArray();
+
+        assertThrows(EOFException.class, () -> new AggregateBareDecoder(bytes).i16Slice());
+        assertThrows(EOFException.class, () -> new AggregateBareDecoder(bytes).i32Slice());
+        assertThrows(EOFException.class, () -> new AggregateBareDecoder(bytes).i64Slice());
+        assertThrows(EOFException.class, () -> new AggregateBareDecoder(ByteBuffer.wrap(bytes)).f32Slice());
+        assertThrows(EOFException.class, () -> new AggregateBareDecoder(ByteBuffer.wrap(bytes)).f64Slice());
+        assertThrows(EOFException.class, () -> new AggregateBareDecoder(bytes).dataAsBytes());
+        assertArrayEquals(new long[]{7L}, new AggregateBareDecoder(ByteBuffer.wrap(bytes, bytes.length - Long.BYTES, Long.BYTES)).i64Array(1));
+    }
+}
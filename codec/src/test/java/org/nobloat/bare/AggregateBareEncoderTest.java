@@ -7,8 +7,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -176,4 +178,77 @@ class AggregateBareEncoderTest {
     void unmappedUnion() {
         assertThrows(BareException.class, () -> encoder.union(new Union(1, 1337.42f), Map.of(0, e -> encoder.f32((Float) e))));
     }
-}
\ No newline at end of file
+
+    @Test
+    void primitiveArrays() throws IOException, BareException {
+        encoder.i16Array(new short[]{1, -2});
+        encoder.i32Array(new int[]{7, -8});
+        encoder.i64Array(new long[]{1L, -2L});
+        encoder.f32Array(new float[]{1337.42f});
+        encoder.f64Array(new double[]{133713371337.42424242});
+
+        assertArrayEquals(bytesFromInts(0x01, 0x00, 0xFE, 0xFF,
+                0x07, 0x00, 0x00, 0x00, 0xF8, 0xFF, 0xFF, 0xFF,
+                0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0xFE, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF,
+                0x71, 0x2D, 0xA7, 0x44,
+                0x9B, 0x6C, 0xC9, 0x20, 0xF0, 0x21, 0x3F, 0x42), bos.toByteArray());
+    }
+
+    @Test
+    void primitiveSlices() throws IOException, BareException {
+        var values = new long[5000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * 31L - 7;
+        }
+
+        var buffered = new AggregateBareEncoder(bos, 100);
+        buffered.i64Slice(values);
+        buffered.i32Slice(new int[]{7});
+        buffered.flush();
+
+        var unbuffered = new AggregateBareEncoder(new ByteArrayOutputStream());
+        unbuffered.i64Slice(values);
+        var growing = new AggregateBareEncoder();
+        growing.i64Slice(values);
+        growing.i32Slice(new int[]{7});
+
+        var expected = growing.toByteArray();
+        assertEquals(2 + 5000 * 8 + 1 + 4, expected.length);
+        assertArrayEquals(expected, bos.toByteArray());
+        assertArrayEquals(new AggregateBareDecoder(expected).i64Slice(), values);
+    }
+
+    @Test
+    void parallelSliceAndMap() throws IOException, BareException {
+        var items = new ArrayList<String>();
+        var map = new HashMap<Integer, String>();
+        for (int i = 0; i < 100000; i++) {
+            items.add("item" + i);
+            map.put(i, "value" + i);
+        }
+        var serial = new AggregateBareEncoder();
+        serial.slice(items, serial::string);
+        serial.map(map, serial::i32, serial::string);
+
+        var parallel = new AggregateBareEncoder();
+        parallel.ParallelMinItems = 1000;
+        parallel.parallelSlice(items, (item, e) -> e.string(item), new ForkJoinPool(4));
+        parallel.parallelMap(map, (key, e) -> e.i32(key), (value, e) -> e.string(value), new ForkJoinPool(4));
+        assertArrayEquals(serial.toByteArray(), parallel.toByteArray());
+
+        encoder.parallelSlice(List.of("a", "b"), (item, e) -> e.string(item));
+        encoder.flush();
+        assertArrayEquals(bytesFromInts(2, 1, 'a', 1, 'b'), bos.toByteArray());
+    }
+
+    @Test
+    void parallelSliceFailure() {
+        var items = new ArrayList<Integer>();
+        for (int i = 0; i < 10000; i++) {
+            items.add(i);
+        }
+        encoder.ParallelMinItems = 100;
+        var exception = assertThrows(BareException.class, () -> encoder.parallelSlice(items, (item, e) -> e.u8(item.shortValue())));
+        assertEquals("u8 must not exceed value of 255", exception.getMessage());
+    }
+}
@@ -0,0 +1,134 @@
+package org.nobloat.bare;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodecPoolTest {
+
+    @Test
+    void reusesReleasedInstances() {
+        var pool = CodecPool.decoders();
+        var decoder = pool.acquire();
+        assertNotSame(decoder, pool.acquire());
+        pool.release(decoder);
+        assertSame(decoder, pool.acquire());
+    }
+
+    @Test
+    void dropsWhenStripeIsFull() {
+        var created = new AtomicInteger();
+        var pool = new CodecPool<>(() -> {
+            created.incrementAndGet();
+            return new Object();
+        }, 1, 2);
+        var a = pool.acquire();
+        var b = pool.acquire();
+        var c = pool.acquire();
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+        pool.acquire();
+        pool.acquire();
+        pool.acquire();
+        assertEquals(4, created.get());
+    }
+
+    @Test
+    void invalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new CodecPool<>(Object::new, 0, 4));
+        assertThrows(IllegalArgumentException.class, () -> new CodecPool<>(Object::new, 4, 17));
+    }
+
+    @Test
+    void reusesChannelEncoders() throws IOException, BareException {
+        var pool = new CodecPool<>(() -> new AggregateBareEncoder(Channels.newChannel(OutputStream.nullOutputStream()), 64));
+        var messages = new ArrayList<byte[]>();
+        for (int i = 0; i < 3; i++) {
+            var os = new ByteArrayOutputStream();
+            var encoder = pool.acquire();
+            try {
+                encoder.reset(Channels.newChannel(os));
+                encoder.i32(i);
+                encoder.string("value" + i);
+                encoder.flush();
+            } finally {
+                pool.release(encoder);
+            }
+            messages.add(os.toByteArray());
+        }
+        for (int i = 0; i < messages.size(); i++) {
+            var decoder = new AggregateBareDecoder(messages.get(i));
+            assertEquals(i, decoder.i32());
+            assertEquals("value" + i, decoder.string());
+        }
+
+        var encoder = pool.acquire();
+        var os = new ByteArrayOutputStream();
+        encoder.reset(os);
+        encoder.u8((byte) 7);
+        encoder.flush();
+        assertArrayEquals(new byte[]{7}, os.toByteArray());
+
+        var buffered = CodecPool.encoders().acquire();
+        var channel = new ByteArrayOutputStream();
+        buffered.reset(Channels.newChannel(channel));
+        buffered.u8((byte) 9);
+        buffered.flush();
+        assertArrayEquals(new byte[]{9}, channel.toByteArray());
+    }
+
+    @Test
+    void concurrentRoundTrips() throws InterruptedException, ExecutionException {
+        var decoders = CodecPool.decoders();
+        var encoders = CodecPool.encoders();
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < 8; t++) {
+                int offset = t * 10000;
+                futures.add(executor.submit(() -> {
+                    for (int i = offset; i < offset + 10000; i++) {
+                        var encoder = encoders.acquire();
+                        var decoder = decoders.acquire();
+                        try {
+                            encoder.reset();
+                            encoder.i32(i);
+                            encoder.string("value" + i);
+                            decoder.reset(encoder.toByteArray());
+                            if (decoder.i32() != i || !decoder.string().equals("value" + i)) {
+                                return false;
+                            }
+                        } catch (IOException | BareException e) {
+                            return false;
+                        } finally {
+                            decoders.release(decoder);
+                            encoders.release(encoder);
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (var future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
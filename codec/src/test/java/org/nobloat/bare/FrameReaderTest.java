@@ -0,0 +1,105 @@
+package org.nobloat.bare;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameReaderTest {
+
+    @Test
+    void roundTrip() throws IOException, BareException {
+        for (var format : FrameFormat.values()) {
+            var bos = new ByteArrayOutputStream();
+            var writer = new FrameWriter(bos, format);
+            for (int i = 0; i < 1000; i++) {
+                int value = i;
+                writer.write(format.isTagged() ? i % 7 : 0, encoder -> {
+                    encoder.i32(value);
+                    encoder.string("frame" + value);
+                });
+            }
+
+            var reader = new FrameReader(new ByteArrayInputStream(bos.toByteArray()), format, 64);
+            for (int i = 0; i < 1000; i++) {
+                assertTrue(reader.next());
+                assertEquals(format.isTagged() ? i % 7 : 0, reader.tag());
+                if (i % 3 == 0) {
+                    continue;
+                }
+                var decoder = reader.decoder();
+                assertEquals(i, decoder.i32());
+                assertEquals("frame" + i, decoder.string());
+                assertThrows(EOFException.class, decoder::u8);
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void largeFrames() throws IOException, BareException {
+        var bos = new ByteArrayOutputStream();
+        var writer = new FrameWriter(Channels.newChannel(bos), FrameFormat.Fixed32Tagged);
+        var payload = new byte[100000];
+        payload[99999] = 0x42;
+        writer.write(3, payload, 0, payload.length);
+        writer.write(4, encoder -> encoder.i32Slice(new int[50000]));
+        writer.write(5, payload, 0, payload.length);
+
+        var reader = new FrameReader(Channels.newChannel(new ByteArrayInputStream(bos.toByteArray())), FrameFormat.Fixed32Tagged);
+        assertTrue(reader.next());
+        assertEquals(100000, reader.length());
+        assertTrue(reader.next());
+        assertEquals(4, reader.tag());
+        assertEquals(50000, reader.read(AggregateBareDecoder::i32Slice).length);
+        assertTrue(reader.next());
+        var buffer = reader.payload();
+        assertEquals(100000, buffer.remaining());
+        assertEquals(0x42, buffer.get(99999));
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void header() throws IOException, BareException {
+        var bos = new ByteArrayOutputStream();
+        new FrameWriter(bos, FrameFormat.VarintTagged).write(300, encoder -> encoder.u8((byte) 0x42));
+        assertArrayEquals(new byte[]{0x01, (byte) 0xAC, 0x02, 0x42}, bos.toByteArray());
+
+        bos.reset();
+        new FrameWriter(bos, FrameFormat.Fixed32).write(new byte[]{0x13, 0x37});
+        assertArrayEquals(new byte[]{0x02, 0x00, 0x00, 0x00, 0x13, 0x37}, bos.toByteArray());
+
+        assertThrows(IllegalArgumentException.class, () -> new FrameWriter(bos, FrameFormat.Varint).write(1, encoder -> {}));
+    }
+
+    @Test
+    void invalidFrames() throws IOException, BareException {
+        var truncated = new FrameReader(new ByteArrayInputStream(new byte[]{0x05, 0x01}), FrameFormat.Varint);
+        assertTrue(truncated.next());
+        assertThrows(EOFException.class, truncated::decoder);
+
+        var skipped = new FrameReader(new ByteArrayInputStream(new byte[]{0x05, 0x01}), FrameFormat.Varint);
+        assertTrue(skipped.next());
+        assertThrows(EOFException.class, skipped::next);
+
+        var header = new FrameReader(new ByteArrayInputStream(new byte[]{0x05, 0x00}), FrameFormat.Fixed32);
+        assertThrows(EOFException.class, header::next);
+
+        var tooLong = new FrameReader(new ByteArrayInputStream(new byte[]{0x05, 0x01}), FrameFormat.Varint);
+        tooLong.MaxFrameLength = 4;
+        assertThrows(BareException.class, tooLong::next);
+
+        var empty = new FrameReader(new ByteArrayInputStream(new byte[0]), FrameFormat.Varint);
+        assertThrows(IllegalStateException.class, empty::tag);
+        assertFalse(empty.next());
+    }
+}
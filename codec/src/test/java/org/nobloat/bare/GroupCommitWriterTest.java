@@ -0,0 +1,149 @@
+package org.nobloat.bare;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupCommitWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentWriters() throws Exception {
+        var file = directory.resolve("frames.bin");
+        var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        var writer = new GroupCommitWriter(channel, FrameFormat.VarintTagged, 64, 4096, 100, true);
+
+        var threads = new ArrayList<Thread>();
+        var futures = new ArrayList<CompletableFuture<Long>>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 1000; i++) {
+                        int value = thread * 1000 + i;
+                        var future = writer.write(thread, encoder -> {
+                            encoder.i32(value);
+                            encoder.data(new byte[value % 5000]);
+                        });
+                        synchronized (futures) {
+                            futures.add(future);
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (var thread : threads) {
+            thread.join();
+        }
+        var offsets = new HashSet<Long>();
+        for (var future : futures) {
+            offsets.add(future.get());
+        }
+        writer.close();
+        assertEquals(4000, offsets.size());
+
+        var values = new HashSet<Integer>();
+        try (var reader = new FrameReader(Files.newInputStream(file), FrameFormat.VarintTagged)) {
+            while (reader.next()) {
+                int value = reader.read(AggregateBareDecoder::i32);
+                assertEquals(value / 1000, reader.tag());
+                values.add(value);
+            }
+        }
+        assertEquals(4000, values.size());
+
+        try (var mapped = FileChannel.open(file, StandardOpenOption.READ)) {
+            var buffer = mapped.map(FileChannel.MapMode.READ_ONLY, 0, mapped.size());
+            for (long offset : offsets) {
+                var decoder = new AggregateBareDecoder(buffer.duplicate().position((int) offset));
+                decoder.skipVarint();
+                assertTrue(decoder.variadicUintAsInt() < 4);
+            }
+        }
+    }
+
+    @Test
+    void appendsAndRejectsAfterClose() throws IOException, BareException, InterruptedException, ExecutionException {
+        var file = directory.resolve("frames.bin");
+        Files.write(file, new byte[]{0x01, 0x42});
+        var writer = new GroupCommitWriter(FileChannel.open(file, StandardOpenOption.WRITE), FrameFormat.Varint);
+        assertEquals(2L, writer.write(new byte[]{0x13, 0x37}).get());
+        writer.close();
+        assertEquals(5, Files.size(file));
+        assertThrows(IllegalStateException.class, () -> writer.write(new byte[1]));
+    }
+
+    @Test
+    void failsPendingFramesWhenInterrupted() throws Exception {
+        var file = directory.resolve("interrupted.bin");
+        var writer = new GroupCommitWriter(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE), FrameFormat.Varint,
+                16, 1 << 16, TimeUnit.SECONDS.toMicros(30), false);
+        var future = writer.write(new byte[]{0x01});
+        var thread = Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("bare-group-commit") && t.isAlive())
+                .findFirst().orElseThrow();
+        thread.interrupt();
+        var e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+        assertThrows(IOException.class, () -> writer.write(new byte[1]));
+        assertThrows(IOException.class, writer::close);
+    }
+
+    @Test
+    void completesEveryFrameWhenClosedConcurrently() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            var file = directory.resolve("closed" + round + ".bin");
+            var writer = new GroupCommitWriter(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE), FrameFormat.Varint,
+                    4, 1 << 10, 0, false);
+            var futures = new ArrayList<CompletableFuture<Long>>();
+            var producers = new ArrayList<Thread>();
+            for (int t = 0; t < 4; t++) {
+                var producer = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 100; i++) {
+                            var future = writer.write(new byte[]{(byte) i});
+                            synchronized (futures) {
+                                futures.add(future);
+                            }
+                        }
+                    } catch (IllegalStateException | IOException | InterruptedException e) {
+                        // closed while writing
+                    }
+                });
+                producer.start();
+                producers.add(producer);
+            }
+            writer.close();
+            for (var producer : producers) {
+                producer.join();
+            }
+            for (var future : futures) {
+                try {
+                    future.get(10, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    assertInstanceOf(IOException.class, e.getCause());
+                }
+            }
+        }
+    }
+}
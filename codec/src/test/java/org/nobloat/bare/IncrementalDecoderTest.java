@@ -0,0 +1,123 @@
+package org.nobloat.bare;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IncrementalDecoderTest {
+
+    private static byte[] frames(FrameFormat format, int count) throws IOException, BareException {
+        var bos = new ByteArrayOutputStream();
+        var writer = new FrameWriter(bos, format);
+        for (int i = 0; i < count; i++) {
+            int value = i;
+            writer.write(format.isTagged() ? i % 3 : 0, encoder -> {
+                encoder.i32(value);
+                encoder.string("message".repeat(value % 50));
+            });
+        }
+        return bos.toByteArray();
+    }
+
+    private static String decode(AggregateBareDecoder decoder) throws IOException, BareException {
+        return decoder.i32() + ":" + decoder.string().length();
+    }
+
+    private static List<String> expected(int count) {
+        var result = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            result.add(i + ":" + "message".length() * (i % 50));
+        }
+        return result;
+    }
+
+    @Test
+    void byteByByte() throws IOException, BareException {
+        for (var format : FrameFormat.values()) {
+            var bytes = frames(format, 200);
+            var decoder = new IncrementalDecoder<>(format, IncrementalDecoderTest::decode, 16);
+            var result = new ArrayList<String>();
+            for (byte b : bytes) {
+                decoder.feed(new byte[]{b}, 0, 1);
+                String message;
+                while ((message = decoder.next()) != null) {
+                    result.add(message);
+                    assertEquals(format.isTagged() ? (result.size() - 1) % 3 : 0, decoder.tag());
+                }
+            }
+            assertEquals(expected(200), result);
+            assertEquals(0, decoder.buffered());
+        }
+    }
+
+    @Test
+    void unframed() throws IOException, BareException {
+        var encoder = new AggregateBareEncoder();
+        for (int i = 0; i < 100; i++) {
+            encoder.i32(i);
+            encoder.string("message".repeat(i % 50));
+        }
+        var bytes = encoder.toByteArray();
+        var decoder = new IncrementalDecoder<>(null, IncrementalDecoderTest::decode);
+        var result = new ArrayList<String>();
+        for (int offset = 0; offset < bytes.length; offset += 37) {
+            decoder.feed(ByteBuffer.wrap(bytes, offset, Math.min(37, bytes.length - offset)));
+            String message;
+            while ((message = decoder.next()) != null) {
+                result.add(message);
+            }
+        }
+        assertEquals(expected(100), result);
+    }
+
+    @Test
+    void nonBlockingChannel() throws IOException, BareException {
+        var bytes = frames(FrameFormat.Varint, 1000);
+        var pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        var decoder = new IncrementalDecoder<>(FrameFormat.Varint, IncrementalDecoderTest::decode);
+        var result = new ArrayList<String>();
+        assertEquals(0, decoder.read(pipe.source()));
+        assertNull(decoder.next());
+        for (int offset = 0; offset < bytes.length; offset += 1000) {
+            var chunk = ByteBuffer.wrap(bytes, offset, Math.min(1000, bytes.length - offset));
+            while (chunk.hasRemaining()) {
+                pipe.sink().write(chunk);
+            }
+            while (decoder.read(pipe.source()) > 0) {
+                String message;
+                while ((message = decoder.next()) != null) {
+                    result.add(message);
+                }
+            }
+        }
+        pipe.sink().close();
+        assertEquals(-1, decoder.read(pipe.source()));
+        assertEquals(expected(1000), result);
+    }
+
+    @Test
+    void maxFrameLength() {
+        var decoder = new IncrementalDecoder<>(FrameFormat.Fixed32, IncrementalDecoderTest::decode);
+        decoder.MaxFrameLength = 100;
+        decoder.feed(new byte[]{(byte) 0xFF, 0, 0, 0}, 0, 4);
+        assertThrows(BareException.class, decoder::next);
+    }
+
+    @Test
+    void negativeFrameLength() throws IOException, BareException {
+        var decoder = new IncrementalDecoder<>(FrameFormat.Varint, IncrementalDecoderTest::decode);
+        var header = new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01};
+        decoder.feed(header, 0, header.length);
+        assertThrows(BareException.class, decoder::next);
+    }
+}
@@ -0,0 +1,97 @@
+package org.nobloat.bare;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendAndRead() throws IOException, BareException {
+        try (var log = new MessageLog(directory, FrameFormat.VarintTagged, 1024)) {
+            for (int i = 0; i < 1000; i++) {
+                int value = i;
+                assertEquals(i, log.append(i % 3, encoder -> {
+                    encoder.i32(value);
+                    encoder.string("record" + value);
+                }));
+            }
+            assertEquals(1000, log.size());
+            assertEquals("record500", log.read(500, decoder -> {
+                decoder.i32();
+                return decoder.string();
+            }));
+            assertEquals(999 % 3, log.tag(999));
+            assertEquals(List.of(10, 11, 12), log.read(10, 13, AggregateBareDecoder::i32));
+            assertEquals(4 + 1 + 9, log.payload(999).remaining());
+            assertThrows(IndexOutOfBoundsException.class, () -> log.decoder(1000));
+        }
+        try (var files = Files.list(directory)) {
+            assertTrue(files.count() > 2);
+        }
+
+        try (var log = new MessageLog(directory, FrameFormat.VarintTagged, 1024)) {
+            assertEquals(1000, log.size());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, log.read(i, AggregateBareDecoder::i32));
+            }
+            assertEquals(1000, log.append(0, encoder -> encoder.i32(1000)));
+            assertEquals(1000, log.read(1000, AggregateBareDecoder::i32));
+        }
+    }
+
+    @Test
+    void readsWhileAppending() throws IOException, BareException {
+        try (var log = new MessageLog(directory, FrameFormat.Varint, MessageLog.MAX_SEGMENT_SIZE)) {
+            for (int i = 0; i < 2000; i++) {
+                int value = i;
+                log.append(0, encoder -> encoder.string("record" + value));
+                assertEquals("record" + i, log.read(i, AggregateBareDecoder::string));
+                assertEquals("record" + i / 2, log.read(i / 2, AggregateBareDecoder::string));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new MessageLog(directory, FrameFormat.Varint, MessageLog.MAX_SEGMENT_SIZE + 1));
+    }
+
+    @Test
+    void recoversUnflushedIndexAndTruncatedRecord() throws IOException, BareException {
+        var log = new MessageLog(directory);
+        for (int i = 0; i < 10; i++) {
+            int value = i;
+            log.append(encoder -> encoder.i64(value));
+        }
+        log.flush();
+        for (int i = 10; i < 20; i++) {
+            int value = i;
+            log.append(encoder -> encoder.i64(value));
+        }
+
+        var segment = directory.resolve(String.format("%020d.log", 0));
+        try (var channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x08, 0x01, 0x02}));
+        }
+
+        try (var reopened = new MessageLog(directory)) {
+            assertEquals(20, reopened.size());
+            assertEquals(19L, reopened.read(19, AggregateBareDecoder::i64));
+            assertEquals(20, reopened.append(encoder -> encoder.i64(20L)));
+            assertEquals(20L, reopened.read(20, AggregateBareDecoder::i64));
+        }
+        assertEquals(21 * 9, Files.size(segment));
+        assertEquals(21 * Integer.BYTES, Files.size(directory.resolve(String.format("%020d.idx", 0))));
+    }
+}
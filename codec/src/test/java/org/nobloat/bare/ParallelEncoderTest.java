@@ -0,0 +1,78 @@
+package org.nobloat.bare;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelEncoderTest {
+
+    private static void encode(Integer value, AggregateBareEncoder encoder) throws IOException, BareException {
+        encoder.i32(value);
+        encoder.string("message" + value);
+        encoder.data(new byte[value % 300]);
+    }
+
+    @Test
+    void framedMatchesSerial() throws IOException, BareException {
+        for (var format : new FrameFormat[]{FrameFormat.Varint, FrameFormat.Fixed32}) {
+            var serial = new ByteArrayOutputStream();
+            var writer = new FrameWriter(serial, format);
+            for (int i = 0; i < 10000; i++) {
+                int value = i;
+                writer.write(encoder -> encode(value, encoder));
+            }
+            writer.flush();
+
+            var parallel = new ByteArrayOutputStream();
+            try (var encoder = new ParallelEncoder<Integer>(parallel, format, ParallelEncoderTest::encode, new ForkJoinPool(4), 16)) {
+                encoder.writeAll(IntStream.range(0, 10000).boxed());
+            }
+            assertArrayEquals(serial.toByteArray(), parallel.toByteArray());
+        }
+    }
+
+    @Test
+    void unframedMatchesSerial() throws IOException, BareException {
+        var serial = new AggregateBareEncoder();
+        for (int i = 0; i < 1000; i++) {
+            encode(i, serial);
+        }
+
+        var parallel = new ByteArrayOutputStream();
+        var encoder = new ParallelEncoder<Integer>(parallel, null, ParallelEncoderTest::encode);
+        for (int i = 0; i < 1000; i++) {
+            encoder.write(i);
+        }
+        encoder.flush();
+        assertArrayEquals(serial.toByteArray(), parallel.toByteArray());
+    }
+
+    @Test
+    void failure() {
+        var encoder = new ParallelEncoder<Integer>(new ByteArrayOutputStream(), FrameFormat.Varint, (value, e) -> {
+            if (value == 50) {
+                throw new BareException("failed " + value);
+            }
+            e.i32(value);
+        }, ForkJoinPool.commonPool(), 4);
+        var exception = assertThrows(BareException.class, () -> {
+            for (int i = 0; i < 100; i++) {
+                encoder.write(i);
+            }
+        });
+        assertEquals("failed 50", exception.getMessage());
+
+        var later = assertThrows(IOException.class, () -> encoder.write(100));
+        assertSame(exception, later.getCause());
+        assertThrows(IOException.class, encoder::flush);
+        assertThrows(IOException.class, encoder::close);
+    }
+}
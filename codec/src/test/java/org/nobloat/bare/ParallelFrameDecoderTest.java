@@ -0,0 +1,70 @@
+package org.nobloat.bare;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelFrameDecoderTest {
+
+    private static ByteBuffer frames(FrameFormat format, int count) throws IOException, BareException {
+        var bos = new ByteArrayOutputStream();
+        var writer = new FrameWriter(bos, format);
+        for (int i = 0; i < count; i++) {
+            int value = i;
+            writer.write(format.isTagged() ? i % 5 : 0, encoder -> {
+                encoder.i32(value);
+                encoder.string("frame" + value);
+            });
+        }
+        return ByteBuffer.wrap(bos.toByteArray());
+    }
+
+    private static String decodeFrame(AggregateBareDecoder decoder) throws IOException, BareException {
+        return decoder.i32() + ":" + decoder.string();
+    }
+
+    @Test
+    void ordered() throws IOException, BareException {
+        var expected = IntStream.range(0, 10000).mapToObj(i -> i + ":frame" + i).collect(Collectors.toList());
+        for (var format : FrameFormat.values()) {
+            var decoder = new ParallelFrameDecoder(frames(format, 10000), format);
+            assertEquals(10000, decoder.size());
+            assertEquals(format.isTagged() ? 3 : 0, decoder.tag(8));
+            assertEquals(expected, decoder.decode(ParallelFrameDecoderTest::decodeFrame, new ForkJoinPool(4)));
+            assertEquals(expected, decoder.stream(ParallelFrameDecoderTest::decodeFrame).collect(Collectors.toList()));
+            assertEquals("42:frame42", decodeFrame(decoder.decoder(42)));
+        }
+    }
+
+    @Test
+    void unordered() throws IOException, BareException {
+        var decoder = new ParallelFrameDecoder(frames(FrameFormat.Varint, 10000), FrameFormat.Varint);
+        var seen = ConcurrentHashMap.<Integer>newKeySet();
+        decoder.decodeUnordered(AggregateBareDecoder::i32, seen::add);
+        assertEquals(10000, seen.size());
+    }
+
+    @Test
+    void errors() throws IOException, BareException {
+        var buffer = frames(FrameFormat.Varint, 100);
+        assertThrows(EOFException.class, () -> new ParallelFrameDecoder(buffer.duplicate().limit(buffer.limit() - 1), FrameFormat.Varint));
+        assertThrows(BareException.class, () -> new ParallelFrameDecoder(buffer, FrameFormat.Varint, 4));
+
+        var decoder = new ParallelFrameDecoder(buffer, FrameFormat.Varint);
+        assertThrows(BareException.class, () -> decoder.decode(d -> {
+            throw new BareException("failed");
+        }));
+        assertThrows(EOFException.class, () -> decoder.decode(d -> d.data(100)));
+        assertThrows(IndexOutOfBoundsException.class, () -> decoder.decoder(100));
+    }
+}
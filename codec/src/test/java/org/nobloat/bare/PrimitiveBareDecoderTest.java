@@ -2,15 +2,22 @@ package org.nobloat.bare;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.nobloat.bare.TestUtil.bytesFromInts;
 import static org.nobloat.bare.TestUtil.fromInts;
 
 class PrimitiveBareDecoderTest {
@@ -43,6 +50,15 @@ class PrimitiveBareDecoderTest {
         assertEquals(-1, stream.read());
     }
 
+    @Test
+    void u64AsLong() throws IOException {
+        var decoder = new PrimitiveBareDecoder(bytesFromInts(0xEF, 0xBE, 0xAD, 0xDE, 0xBE, 0xBA, 0xFE, 0xCA));
+        long value = decoder.u64AsLong();
+        assertEquals("14627333968688430831", Unsigned.toString(value));
+        assertEquals(new BigInteger("14627333968688430831"), Unsigned.toBigInteger(value));
+        assertTrue(Unsigned.compare(value, Long.MAX_VALUE) > 0);
+    }
+
     @Test
     void i8() throws IOException {
         InputStream stream = fromInts(0xd6);
@@ -108,6 +124,35 @@ class PrimitiveBareDecoderTest {
         assertEquals(-1, stream.read());
     }
 
+    @Test
+    void variadicUintAsLong() throws IOException, BareException {
+        var decoder = new PrimitiveBareDecoder(bytesFromInts(0xEF, 0xFD, 0xB6, 0xF5, 0x0D,
+                0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x01));
+        assertEquals(0xDEADBEEFL, decoder.variadicUintAsLong());
+        assertEquals(-1L, decoder.variadicUintAsLong());
+
+        var overflow = new PrimitiveBareDecoder(bytesFromInts(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x02));
+        assertThrows(BareException.class, overflow::variadicUintAsLong);
+    }
+
+    @Test
+    void variadicUintAsInt() throws IOException, BareException {
+        var decoder = new PrimitiveBareDecoder(bytesFromInts(0xFF, 0xFF, 0xFF, 0xFF, 0x07, 0x80, 0x80, 0x80, 0x80, 0x08));
+        assertEquals(Integer.MAX_VALUE, decoder.variadicUintAsInt());
+        assertThrows(BareException.class, decoder::variadicUintAsInt);
+    }
+
+    @Test
+    void variadicIntBounds() throws IOException {
+        var decoder = new PrimitiveBareDecoder(bytesFromInts(0xFE, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x01,
+                0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x01,
+                0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x02));
+        assertEquals(Long.MAX_VALUE, decoder.variadicInt());
+        assertEquals(Long.MIN_VALUE, decoder.variadicInt());
+        var exception = assertThrows(IOException.class, decoder::variadicInt);
+        assertEquals(BareException.class, exception.getCause().getClass());
+    }
+
     @Test
     void string() throws IOException, BareException {
         InputStream stream = fromInts(0x1B, 0xE3, 0x81, 0x93, 0xE3, 0x82, 0x93, 0xE3,
@@ -117,6 +162,43 @@ class PrimitiveBareDecoderTest {
         assertEquals(-1, stream.read());
     }
 
+    @Test
+    void strings() throws IOException, BareException {
+        var encoder = new PrimitiveBareEncoder();
+        var strings = List.of("customerId", "こんにちは、世界！", "a".repeat(10000), "ö".repeat(10000));
+        for (var s : strings) {
+            encoder.string(s);
+        }
+        var bytes = encoder.toByteArray();
+        var direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        var readOnly = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+
+        for (var decoder : List.of(new PrimitiveBareDecoder(bytes), new PrimitiveBareDecoder(new ByteArrayInputStream(bytes)),
+                new PrimitiveBareDecoder(direct), new PrimitiveBareDecoder(readOnly))) {
+            decoder.ValidateUtf8 = true;
+            for (var s : strings) {
+                assertEquals(s, decoder.string());
+            }
+        }
+    }
+
+    @Test
+    void invalidUtf8() throws IOException, BareException {
+        var invalid = List.of(new int[]{0x02, 0xC0, 0x80}, new int[]{0x03, 0xED, 0xA0, 0x80}, new int[]{0x02, 0xE3, 0x81},
+                new int[]{0x04, 0xF4, 0x90, 0x80, 0x80}, new int[]{0x01, 0xFF});
+        for (var bytes : invalid) {
+            assertEquals("\uFFFD", new PrimitiveBareDecoder(bytesFromInts(bytes)).string().substring(0, 1));
+
+            var decoder = new PrimitiveBareDecoder(bytesFromInts(bytes));
+            decoder.ValidateUtf8 = true;
+            assertThrows(BareException.class, decoder::string);
+        }
+
+        var decoder = new PrimitiveBareDecoder(bytesFromInts(0x04, 0xF0, 0x9F, 0x98, 0x80));
+        decoder.ValidateUtf8 = true;
+        assertEquals("\uD83D\uDE00", decoder.string());
+    }
+
     @Test
     void data() throws IOException, BareException {
         Byte[] ref = {0x13, 0x37, 0x42};
@@ -133,6 +215,26 @@ class PrimitiveBareDecoderTest {
         assertEquals(-1, stream.read());
     }
 
+    @Test
+    void dataAsBytes() throws IOException, BareException {
+        var bytes = new byte[20000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        var encoder = new PrimitiveBareEncoder();
+        encoder.data(bytes);
+
+        assertArrayEquals(bytes, new PrimitiveBareDecoder(encoder.toByteArray()).dataAsBytes());
+        assertArrayEquals(bytes, new PrimitiveBareDecoder(new ByteArrayInputStream(encoder.toByteArray())).dataAsBytes());
+
+        var truncated = new PrimitiveBareDecoder(Arrays.copyOf(encoder.toByteArray(), 1000));
+        assertThrows(EOFException.class, truncated::dataAsBytes);
+
+        var decoder = new PrimitiveBareDecoder(encoder.toByteArray());
+        decoder.MaxSliceLength = 19999;
+        assertThrows(BareException.class, decoder::dataAsBytes);
+    }
+
     @Test
     void dataTooLong() {
         var decoder = new PrimitiveBareDecoder(fromInts(0x03, 0x13, 0x37, 0x42));
@@ -149,4 +251,85 @@ class PrimitiveBareDecoderTest {
         decoder = new PrimitiveBareDecoder(fromInts(0xFF,0xFF,0xFF,0xFF,0xFF,0xFF,0xFF,0xFF));
         assertEquals(new BigInteger("18446744073709551615", 10),decoder.u64());
     }
-}
\ No newline at end of file
+
+    @Test
+    void heapBuffer() throws IOException, BareException {
+        var decoder = new PrimitiveBareDecoder(bytesFromInts(0xfe, 0xca, 0xEF, 0xBE, 0xAD, 0xDE, 0x4F, 0x0B, 0x6E, 0x9D, 0xAB, 0x23, 0xD4, 0xFF,
+                0x2E, 0xFB, 0x03, 0x13, 0x37, 0x42));
+        assertEquals(0xCAFE, decoder.u16());
+        assertEquals(0xDEADBEEFL, decoder.u32());
+        assertEquals(-12345678987654321L, decoder.i64());
+        assertEquals(-1234, decoder.i16());
+        assertArrayEquals(new Byte[]{0x13, 0x37, 0x42}, decoder.data());
+        assertThrows(EOFException.class, decoder::u8);
+    }
+
+    @Test
+    void directBuffer() throws IOException, BareException {
+        var bytes = bytesFromInts(0x00, 0xB2, 0x9E, 0x43, 0xFF, 0x9B, 0x6C, 0xC9, 0x20, 0xF0, 0x21, 0x3F, 0x42, 0x13, 0x37, 0x42, 0x01);
+        var buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip().position(1);
+
+        var decoder = new PrimitiveBareDecoder(buffer);
+        assertEquals(-12345678, decoder.i32());
+        assertEquals(133713371337.42424242, decoder.f64());
+        assertArrayEquals(new byte[]{0x13, 0x37, 0x42}, decoder.data(3));
+        assertThrows(EOFException.class, decoder::i16);
+
+        assertEquals(1, buffer.position());
+        assertEquals(ByteOrder.BIG_ENDIAN, buffer.order());
+    }
+
+    @Test
+    void bufferLimit() throws IOException {
+        var buffer = ByteBuffer.wrap(bytesFromInts(0xEF, 0xBE, 0xAD, 0xDE, 0xBE, 0xBA, 0xFE, 0xCA)).limit(4);
+        var decoder = new PrimitiveBareDecoder(buffer);
+        assertThrows(EOFException.class, decoder::i64);
+        assertEquals(0xDEADBEEFL, decoder.u32());
+    }
+
+    @Test
+    void reset() throws IOException {
+        var decoder = new PrimitiveBareDecoder(fromInts(0x42));
+        assertEquals(0x42, decoder.u8());
+
+        decoder.reset(fromInts(0x13));
+        assertEquals(0x13, decoder.u8());
+
+        decoder.reset(bytesFromInts(0xEF, 0xBE, 0xAD, 0xDE));
+        assertEquals(0xDEADBEEFL, decoder.u32());
+        assertThrows(EOFException.class, decoder::u8);
+
+        decoder.reset(ByteBuffer.wrap(bytesFromInts(0x00, 0x37)).position(1));
+        assertEquals(0x37, decoder.u8());
+
+        decoder.reset(fromInts(0x01));
+        assertEquals(0x01, decoder.u8());
+    }
+
+    @Test
+    void skip() throws IOException, BareException {
+        var bytes = bytesFromInts(0x01, 0x02, 0xFF, 0xFF, 0x03, 0x03, 0x61, 0x62, 0x63, 0x02, 0x13, 0x37, 0x42);
+        for (var decoder : List.of(new PrimitiveBareDecoder(bytes), new PrimitiveBareDecoder(new ByteArrayInputStream(bytes)))) {
+            decoder.skip(1);
+            decoder.skipVarint();
+            decoder.skipVarint();
+            decoder.skipString();
+            decoder.skipData();
+            assertEquals(0x42, decoder.u8());
+            assertThrows(EOFException.class, () -> decoder.skip(1));
+        }
+    }
+
+    @Test
+    void skipInvalid() {
+        var decoder = new PrimitiveBareDecoder(bytesFromInts(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x01));
+        assertThrows(BareException.class, decoder::skipVarint);
+
+        var truncated = new PrimitiveBareDecoder(bytesFromInts(0x05, 0x61));
+        assertThrows(EOFException.class, truncated::skipString);
+
+        var tooLong = new PrimitiveBareDecoder(bytesFromInts(0x05, 0x61));
+        tooLong.MaxSliceLength = 4;
+        assertThrows(BareException.class, tooLong::skipData);
+    }
+}
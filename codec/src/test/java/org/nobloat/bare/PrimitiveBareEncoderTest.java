@@ -2,10 +2,19 @@ package org.nobloat.bare;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -66,6 +75,19 @@ class PrimitiveBareEncoderTest {
         assertArrayEquals(new byte[]{(byte) 0xEF, (byte) 0xBE, (byte) 0xAD, (byte) 0xDE, (byte) 0xBE, (byte) 0xBA, (byte) 0xFE, (byte) 0xCA},result);
     }
 
+    @Test
+    void u64AsLong() throws IOException, BareException {
+        encoder.u64AsLong(Unsigned.fromBigInteger(new BigInteger("CAFEBABEDEADBEEF", 16)));
+        assertArrayEquals(new byte[]{(byte) 0xEF, (byte) 0xBE, (byte) 0xAD, (byte) 0xDE, (byte) 0xBE, (byte) 0xBA, (byte) 0xFE, (byte) 0xCA}, bos.toByteArray());
+        assertThrows(BareException.class, () -> Unsigned.fromBigInteger(BigInteger.ONE.shiftLeft(64)));
+    }
+
+    @Test
+    void variadicUIntAsLong() throws IOException, BareException {
+        assertEquals(10, encoder.variadicUIntAsLong(Unsigned.parse("18446744073709551615")));
+        assertArrayEquals(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01}, bos.toByteArray());
+    }
+
     @Test
     void i8() throws IOException {
         try(var stream = bos) {
@@ -149,6 +171,28 @@ class PrimitiveBareEncoderTest {
                 (byte) 0x96, (byte) 0xE7, (byte) 0x95, (byte) 0x8C, (byte) 0xEF, (byte) 0xBC, (byte) 0x81},result);
     }
 
+    @Test
+    void stringsMatchJdkEncoding() throws IOException, BareException {
+        var strings = new String[]{"", "customerId", "Kärnten", "こんにちは、世界！", "emoji \uD83D\uDE00 end", "lone \uD800 surrogate \uDC00",
+                "x".repeat(9000) + "ü".repeat(5000) + "\uD83D\uDE00".repeat(3000)};
+        for (var s : strings) {
+            var expected = s.getBytes(StandardCharsets.UTF_8);
+            for (var target : new PrimitiveBareEncoder[]{new PrimitiveBareEncoder(), new PrimitiveBareEncoder(1, true)}) {
+                target.string(s);
+                var reference = new PrimitiveBareEncoder();
+                reference.data(expected);
+                assertArrayEquals(reference.toByteArray(), target.toByteArray());
+            }
+
+            var sink = new ByteArrayOutputStream();
+            var small = new PrimitiveBareEncoder(sink, 24, true);
+            small.u8((byte) 1);
+            small.string(s);
+            small.flush();
+            assertEquals(s.replace("\uD800", "?").replace("\uDC00", "?"), new PrimitiveBareDecoder(Arrays.copyOfRange(sink.toByteArray(), 1, sink.size())).string());
+        }
+    }
+
     @Test
     void nullString() throws IOException, BareException {
         try(var stream = bos) {
@@ -203,4 +247,138 @@ class PrimitiveBareEncoderTest {
         assertArrayEquals(new byte[]{0x04, 0x01,0x02,0x03,0x04}, bos.toByteArray());
     }
     
-}
\ No newline at end of file
+
+    @Test
+    void largeBoxedData() throws IOException, BareException {
+        var boxed = new Byte[10000];
+        var bytes = new byte[boxed.length];
+        for (int i = 0; i < boxed.length; i++) {
+            boxed[i] = (byte) i;
+            bytes[i] = (byte) i;
+        }
+        encoder.data(boxed);
+
+        var expected = new PrimitiveBareEncoder();
+        expected.data(bytes);
+        assertArrayEquals(expected.toByteArray(), bos.toByteArray());
+    }
+
+    @Test
+    void buffered() throws IOException, BareException {
+        var buffered = new PrimitiveBareEncoder();
+        buffered.u16(0xCAFE);
+        buffered.u32(0xDEADBEEFL);
+        buffered.i64(-12345678987654321L);
+        buffered.variadicUInt(0xDEADBEEFL);
+        buffered.string("こんにちは、世界！");
+
+        var expected = new byte[]{(byte) 0xFE, (byte) 0xCA, (byte) 0xEF, (byte) 0xBE, (byte) 0xAD, (byte) 0xDE,
+                0x4F, 0x0B, 0x6E, (byte) 0x9D, (byte) 0xAB, 0x23, (byte) 0xD4, (byte) 0xFF,
+                (byte) 0xEF, (byte) 0xFD, (byte) 0xB6, (byte) 0xF5, 0x0D,
+                (byte) 0x1B, (byte) 0xE3, (byte) 0x81, (byte) 0x93, (byte) 0xE3, (byte) 0x82, (byte) 0x93, (byte) 0xE3, (byte) 0x81, (byte) 0xAB,
+                (byte) 0xE3, (byte) 0x81, (byte) 0xA1, (byte) 0xE3, (byte) 0x81, (byte) 0xAF, (byte) 0xE3, (byte) 0x80, (byte) 0x81, (byte) 0xE4, (byte) 0xB8,
+                (byte) 0x96, (byte) 0xE7, (byte) 0x95, (byte) 0x8C, (byte) 0xEF, (byte) 0xBC, (byte) 0x81};
+        assertEquals(expected.length, buffered.size());
+        assertArrayEquals(expected, buffered.toByteArray());
+
+        buffered.writeTo(bos);
+        assertArrayEquals(expected, bos.toByteArray());
+
+        buffered.reset();
+        assertEquals(0, buffered.size());
+        buffered.u8((byte) 0x42);
+        assertArrayEquals(new byte[]{0x42}, buffered.toByteArray());
+    }
+
+    @Test
+    void bufferedGrows() throws IOException, BareException {
+        var buffered = new PrimitiveBareEncoder(1, true);
+        for (int i = 0; i < 1000; i++) {
+            buffered.i32(i);
+        }
+        buffered.data(new byte[5000]);
+        assertEquals(4000 + 2 + 5000, buffered.size());
+
+        var decoder = new PrimitiveBareDecoder(buffered.toByteArray());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, decoder.i32());
+        }
+    }
+
+    @Test
+    void bufferedSink() throws IOException, BareException {
+        var buffered = new PrimitiveBareEncoder(bos, 32, true);
+        buffered.i64(1L);
+        buffered.i64(2L);
+        assertEquals(0, bos.size());
+
+        buffered.data(new byte[64]);
+        buffered.i64(3L);
+        assertEquals(8 + 8 + 1 + 64, bos.size());
+
+        buffered.flush();
+        assertEquals(8 + 8 + 1 + 64 + 8, bos.size());
+        assertEquals(0, buffered.size());
+    }
+
+    @Test
+    void unbufferedHasNoBuffer() {
+        assertThrows(UnsupportedOperationException.class, () -> encoder.toByteArray());
+    }
+
+    @Test
+    void reset() throws IOException, BareException {
+        encoder.u8((byte) 0x42);
+        var other = new ByteArrayOutputStream();
+        encoder.reset(other);
+        encoder.u8((byte) 0x13);
+        assertArrayEquals(new byte[]{0x42}, bos.toByteArray());
+        assertArrayEquals(new byte[]{0x13}, other.toByteArray());
+
+        var buffered = new PrimitiveBareEncoder(bos, 32, true);
+        buffered.i32(1);
+        buffered.reset(other);
+        buffered.i32(2);
+        buffered.flush();
+        assertArrayEquals(new byte[]{0x42}, bos.toByteArray());
+        assertArrayEquals(new byte[]{0x13, 0x02, 0x00, 0x00, 0x00}, other.toByteArray());
+    }
+
+    private static void encodeMixed(AggregateBareEncoder encoder, byte[] large) throws IOException, BareException {
+        for (int i = 0; i < 1000; i++) {
+            encoder.u8((byte) i);
+            encoder.i32(i);
+            encoder.i64(i * 31L);
+            encoder.variadicUInt(i * 1000L);
+            encoder.string("string" + i);
+            encoder.data(new byte[i % 7]);
+            if (i % 100 == 0) {
+                encoder.data(large);
+                encoder.data(ByteBuffer.allocateDirect(large.length).put(large).flip());
+                encoder.i32Slice(new int[3000]);
+            }
+        }
+    }
+
+    @Test
+    void channel(@TempDir Path directory) throws IOException, BareException {
+        var large = new byte[3000];
+        Arrays.fill(large, (byte) 7);
+        var expected = new AggregateBareEncoder();
+        encodeMixed(expected, large);
+
+        var file = directory.resolve("channel.bin");
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            var gathering = new AggregateBareEncoder(channel, 4096);
+            encodeMixed(gathering, large);
+            gathering.flush();
+        }
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(file));
+
+        var plain = new AggregateBareEncoder(Channels.newChannel(bos), 1024);
+        encodeMixed(plain, large);
+        plain.flush();
+        assertArrayEquals(expected.toByteArray(), bos.toByteArray());
+        assertThrows(UnsupportedOperationException.class, plain::toByteArray);
+    }
+}
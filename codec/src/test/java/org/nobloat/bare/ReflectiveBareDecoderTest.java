@@ -1,15 +1,24 @@
 package org.nobloat.bare;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import javax.tools.ToolProvider;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.nobloat.bare.TestUtil.fromInts;
 import static org.nobloat.bare.TestUtil.openFile;
 
@@ -119,6 +128,27 @@ class ReflectiveBareDecoderTest {
         assertEquals("nobloat/bare-jdk", person.repositories.get(1));
     }
 
+    @Test
+    public void testUnsignedLongFields() throws IOException, ReflectiveOperationException, BareException {
+        var decoder = new ReflectiveBareDecoder(TestUtil.bytesFromInts(0xEF, 0xBE, 0xAD, 0xDE, 0xBE, 0xBA, 0xFE, 0xCA,
+                0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x01,
+                0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00));
+        var ids = decoder.struct(Ids.class);
+
+        assertEquals(0xCAFEBABEDEADBEEFL, ids.id);
+        assertEquals(-1L, ids.sequence);
+        assertEquals(BigInteger.ONE, ids.legacy);
+    }
+
+    public static class Ids {
+        @Int(Int.Type.u64)
+        public long id;
+        @Int(Int.Type.ui)
+        public Long sequence;
+        @Int(Int.Type.u64)
+        public BigInteger legacy;
+    }
+
     public static class Person {
         public String firstName;
         public String lastName;
@@ -186,6 +216,84 @@ class ReflectiveBareDecoderTest {
         }
     }
 
+    public static class Scores {
+        public static String IGNORED = "static";
+        public Map<String, Double> scores;
+        public TestClasses.Department department;
+    }
+
+    public static class Unannotated {
+        public int age;
+    }
+
+    @Test
+    public void testCachedPlan() throws IOException, ReflectiveOperationException, BareException {
+        var encoder = new AggregateBareEncoder();
+        for (int i = 0; i < 3; i++) {
+            encoder.map(Map.of("a", 1.5 + i), encoder::string, encoder::f64);
+            encoder.variadicUInt(99);
+        }
+        encoder.variadicUInt(7);
+        var decoder = new ReflectiveBareDecoder(encoder.toByteArray());
+        for (int i = 0; i < 3; i++) {
+            var scores = decoder.struct(Scores.class);
+            assertEquals(Map.of("a", 1.5 + i), scores.scores);
+            assertEquals(TestClasses.Department.JSMITH, scores.department);
+        }
+        assertEquals("static", Scores.IGNORED);
+        assertThrows(BareException.class, () -> decoder.enumeration(TestClasses.Department.class));
 
+        var unannotated = new ReflectiveBareDecoder(new byte[]{1});
+        assertThrows(UnsupportedEncodingException.class, () -> unannotated.struct(Unannotated.class));
+    }
 
-}
\ No newline at end of file
+    @Test
+    public void testRecord(@TempDir Path dir) throws Exception {
+        // the tests compile for Java 11, so the records are compiled at runtime
+        assumeTrue(Runtime.version().feature() >= 16);
+        var source = dir.resolve("Trade.java");
+        Files.writeString(source, "package org.nobloat.bare.records;\n" +
+                "import org.nobloat.bare.*;\n" +
+                "import java.util.*;\n" +
+                "public record Trade(@Int(Int.Type.i64) long id, @Int(Int.Type.u16) int venue, String symbol, double price,\n" +
+                "        Optional<Trade> parent, List<String> tags, TestClasses.Department department) {}\n" +
+                "record Lines(String[] lines) {}\n");
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, "-classpath", System.getProperty("java.class.path"), "-d", dir.toString(), source.toString()));
+
+        try (var loader = new URLClassLoader(new java.net.URL[]{dir.toUri().toURL()}, getClass().getClassLoader())) {
+            var type = loader.loadClass("org.nobloat.bare.records.Trade");
+            var constructor = type.getDeclaredConstructors()[0];
+            var parent = constructor.newInstance(1L, 80, "ABC", 1.5, Optional.empty(), List.of(), TestClasses.Department.ACCOUNTING);
+            var trade = constructor.newInstance(-2L, 65535, "XYZ", 0.25, Optional.of(parent), List.of("a", "b"), TestClasses.Department.JSMITH);
+
+            var expected = new AggregateBareEncoder();
+            expected.i64(-2L);
+            expected.u16(65535);
+            expected.string("XYZ");
+            expected.f64(0.25);
+            expected.bool(true);
+            expected.i64(1L);
+            expected.u16(80);
+            expected.string("ABC");
+            expected.f64(1.5);
+            expected.bool(false);
+            expected.variadicUInt(0);
+            expected.variadicUInt(0);
+            expected.variadicUInt(2);
+            expected.string("a");
+            expected.string("b");
+            expected.variadicUInt(99);
+
+            var encoder = new ReflectiveBareEncoder();
+            encoder.struct(trade);
+            assertArrayEquals(expected.toByteArray(), encoder.toByteArray());
+
+            var decoder = new ReflectiveBareDecoder(encoder.toByteArray());
+            assertEquals(trade, decoder.struct(type));
+
+            var lines = loader.loadClass("org.nobloat.bare.records.Lines");
+            assertThrows(NoSuchFieldException.class, () -> new ReflectiveBareDecoder(new byte[0]).struct(lines));
+        }
+    }
+}
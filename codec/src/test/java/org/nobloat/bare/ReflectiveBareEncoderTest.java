@@ -0,0 +1,106 @@
+package org.nobloat.bare;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.nobloat.bare.TestUtil.openFile;
+
+class ReflectiveBareEncoderTest {
+
+    private static final Class<?>[] PEOPLE = {TestClasses.Customer.class, TestClasses.Employee.class, TestClasses.TerminatedEmployee.class};
+
+    @Test
+    public void testReencodePeople() throws IOException, ReflectiveOperationException, BareException {
+        for (var file : new String[]{"customer.bin", "employee.bin", "terminated.bin"}) {
+            byte[] expected;
+            try (var is = openFile(file)) {
+                expected = is.readAllBytes();
+            }
+            var decoded = new ReflectiveBareDecoder(expected).union(PEOPLE);
+            var encoder = new ReflectiveBareEncoder();
+            encoder.union(decoded);
+            assertArrayEquals(expected, encoder.toByteArray(), file);
+
+            var byAnnotation = new ReflectiveBareEncoder();
+            byAnnotation.union(decoded.get(Object.class));
+            assertArrayEquals(expected, byAnnotation.toByteArray(), file);
+        }
+    }
+
+    public static class Account {
+        @Int(Int.Type.u64)
+        public long id;
+        @Int(Int.Type.ui)
+        public BigInteger balance;
+        @Int(Int.Type.u16)
+        public Integer flags;
+        public Optional<String> nickname;
+        public Optional<TestClasses.Address> address;
+        public TestClasses.Department department;
+        public Map<String, Double> limits;
+        public List<TestClasses.Order> orders;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException, ReflectiveOperationException, BareException {
+        var order = new TestClasses.Order();
+        order.id = 42L;
+        order.quantity = 3;
+        var account = new Account();
+        account.id = -1L;
+        account.balance = BigInteger.TWO.pow(63).add(BigInteger.valueOf(5));
+        account.flags = 0xBEEF;
+        account.nickname = Optional.of("nick");
+        account.address = Optional.empty();
+        account.department = TestClasses.Department.JSMITH;
+        account.limits = Map.of("daily", 100.5);
+        account.orders = List.of(order, order);
+
+        var encoder = new ReflectiveBareEncoder();
+        for (int i = 0; i < 3; i++) {
+            encoder.struct(account);
+        }
+        var decoder = new ReflectiveBareDecoder(encoder.toByteArray());
+        for (int i = 0; i < 3; i++) {
+            var decoded = decoder.struct(Account.class);
+            assertEquals(-1L, decoded.id);
+            assertEquals(account.balance, decoded.balance);
+            assertEquals(0xBEEF, decoded.flags);
+            assertEquals(account.nickname, decoded.nickname);
+            assertEquals(Optional.empty(), decoded.address);
+            assertEquals(TestClasses.Department.JSMITH, decoded.department);
+            assertEquals(account.limits, decoded.limits);
+            assertEquals(2, decoded.orders.size());
+            assertEquals(42L, decoded.orders.get(1).id);
+            assertEquals(3, decoded.orders.get(1).quantity);
+        }
+    }
+
+    @Test
+    public void testPrimitivesAndCollections() throws IOException, ReflectiveOperationException, BareException {
+        var encoder = new ReflectiveBareEncoder();
+        encoder.optional(Optional.of("a"));
+        encoder.slice(List.of("x", "y"));
+        encoder.array(new Double[]{1.0, 2.0});
+        encoder.map(Map.of((byte) 1, (byte) 0x11));
+        encoder.enumeration(TestClasses.Department.DEVELOPMENT);
+
+        var decoder = new ReflectiveBareDecoder(encoder.toByteArray());
+        assertEquals(Optional.of("a"), decoder.optional(String.class));
+        assertEquals(List.of("x", "y"), decoder.slice(String.class));
+        assertEquals(List.of(1.0, 2.0), decoder.array(Double.class, 2));
+        assertEquals(Map.of((byte) 1, (byte) 0x11), decoder.map(Byte.class, Byte.class));
+        assertEquals(TestClasses.Department.DEVELOPMENT, decoder.enumeration(TestClasses.Department.class));
+
+        assertThrows(UnsupportedOperationException.class, () -> encoder.union(new TestClasses.Address()));
+        assertThrows(UnsupportedOperationException.class, () -> encoder.writePrimitiveType(new TestClasses.Address()));
+    }
+}
@@ -0,0 +1,184 @@
+package org.nobloat.bare;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.nobloat.bare.TestUtil.openFile;
+
+class RuntimeCodecTest {
+
+    @Test
+    public void testPeople() throws IOException, BareException {
+        for (var file : new String[]{"customer.bin", "employee.bin", "terminated.bin"}) {
+            byte[] expected;
+            try (var is = openFile(file)) {
+                expected = is.readAllBytes();
+            }
+            var union = RuntimeCodec.decodeUnion(new AggregateBareDecoder(expected), TestClasses.Customer.class, TestClasses.Employee.class, TestClasses.TerminatedEmployee.class);
+            var encoder = new AggregateBareEncoder();
+            RuntimeCodec.encodeUnion(union.get(Object.class), encoder);
+            assertArrayEquals(expected, encoder.toByteArray(), file);
+        }
+
+        try (var is = openFile("customer.bin")) {
+            var decoder = new AggregateBareDecoder(is);
+            assertEquals(0, decoder.variadicUintAsInt());
+            var customer = RuntimeCodec.of(TestClasses.Customer.class).decode(decoder);
+            assertEquals("James Smith", customer.name);
+            assertEquals("123 Main St", customer.address.addressLines[0]);
+            assertEquals(4242424242L, customer.orders.get(0).id);
+            assertEquals(5, customer.orders.get(0).quantity);
+        }
+    }
+
+    public static class Node {
+        @Int(Int.Type.u64)
+        public long id;
+        @Int(Int.Type.ui)
+        public BigInteger weight;
+        @Int(Int.Type.u8)
+        public byte flags;
+        public boolean active;
+        public Optional<Node> next;
+        public TestClasses.Department department;
+        public Map<String, Double> scores;
+        public List<String> tags;
+    }
+
+    @Test
+    public void testRoundTripMatchesReflective() throws IOException, ReflectiveOperationException, BareException {
+        var tail = new Node();
+        tail.id = 2;
+        tail.weight = BigInteger.ONE;
+        tail.next = Optional.empty();
+        tail.department = TestClasses.Department.ACCOUNTING;
+        tail.scores = Map.of();
+        tail.tags = List.of();
+        var head = new Node();
+        head.id = -1L;
+        head.weight = BigInteger.TWO.pow(63);
+        head.flags = (byte) 0xFE;
+        head.active = true;
+        head.next = Optional.of(tail);
+        head.department = TestClasses.Department.JSMITH;
+        head.scores = Map.of("x", 0.5);
+        head.tags = List.of("a", "b");
+
+        var codec = RuntimeCodec.of(Node.class);
+        assertSame(codec, RuntimeCodec.of(Node.class));
+        var encoder = new AggregateBareEncoder();
+        codec.encode(head, encoder);
+        var decoded = codec.decode(new AggregateBareDecoder(encoder.toByteArray()));
+
+        assertEquals(-1L, decoded.id);
+        assertEquals(head.weight, decoded.weight);
+        assertEquals((byte) 0xFE, decoded.flags);
+        assertEquals(true, decoded.active);
+        assertEquals(TestClasses.Department.JSMITH, decoded.department);
+        assertEquals(head.scores, decoded.scores);
+        assertEquals(head.tags, decoded.tags);
+        var next = decoded.next.get();
+        assertEquals(2, next.id);
+        assertEquals(Optional.empty(), next.next);
+        assertEquals(TestClasses.Department.ACCOUNTING, next.department);
+
+        var order = new TestClasses.Order();
+        order.id = 7L;
+        order.quantity = 9;
+        var reflective = new ReflectiveBareEncoder();
+        reflective.struct(order);
+        var compiled = new AggregateBareEncoder();
+        RuntimeCodec.of(TestClasses.Order.class).encode(order, compiled);
+        assertArrayEquals(reflective.toByteArray(), compiled.toByteArray());
+    }
+
+    public static class Widened {
+        @Int(Int.Type.i8)
+        public int i8;
+        @Int(Int.Type.u8)
+        public short u8;
+        @Int(Int.Type.i16)
+        public Integer i16;
+        @Int(Int.Type.u16)
+        public long u16;
+        @Int(Int.Type.i32)
+        public long i32;
+        @Int(Int.Type.u32)
+        public Long u32;
+        @Int(Int.Type.i64)
+        public Long i64;
+        @Int(Int.Type.u64)
+        public Long u64;
+        @Int(Int.Type.i)
+        public Long i;
+        @Int(Int.Type.ui)
+        public Long ui;
+    }
+
+    @Test
+    public void testWidenedIntegers() throws IOException, BareException {
+        var value = new Widened();
+        value.i8 = -100;
+        value.u8 = 200;
+        value.i16 = -30000;
+        value.u16 = 60000;
+        value.i32 = Integer.MIN_VALUE;
+        value.u32 = 4000000000L;
+        value.i64 = Long.MIN_VALUE;
+        value.u64 = -1L;
+        value.i = -5L;
+        value.ui = 300L;
+
+        var encoder = new AggregateBareEncoder();
+        RuntimeCodec.of(Widened.class).encode(value, encoder);
+        var bytes = encoder.toByteArray();
+        var expected = new AggregateBareEncoder();
+        expected.i8((byte) -100);
+        expected.u8((short) 200);
+        expected.i16((short) -30000);
+        expected.u16(60000);
+        expected.i32(Integer.MIN_VALUE);
+        expected.u32(4000000000L);
+        expected.i64(Long.MIN_VALUE);
+        expected.u64AsLong(-1L);
+        expected.variadicInt(-5L);
+        expected.variadicUIntAsLong(300L);
+        assertArrayEquals(expected.toByteArray(), bytes);
+
+        var decoded = RuntimeCodec.of(Widened.class).decode(new AggregateBareDecoder(bytes));
+        assertEquals(-100, decoded.i8);
+        assertEquals(200, decoded.u8);
+        assertEquals(-30000, decoded.i16);
+        assertEquals(60000, decoded.u16);
+        assertEquals(Integer.MIN_VALUE, decoded.i32);
+        assertEquals(4000000000L, decoded.u32);
+        assertEquals(Long.MIN_VALUE, decoded.i64);
+        assertEquals(-1L, decoded.u64);
+        assertEquals(-5L, decoded.i);
+        assertEquals(300L, decoded.ui);
+
+        value.u8 = 256;
+        assertThrows(BareException.class, () -> RuntimeCodec.of(Widened.class).encode(value, new AggregateBareEncoder()));
+    }
+
+    public static class Unannotated {
+        public int age;
+    }
+
+    @Test
+    public void testUnsupported() {
+        var exception = assertThrows(IllegalArgumentException.class, () -> RuntimeCodec.of(Unannotated.class));
+        assertEquals("Cannot create codec for " + Unannotated.class.getName() + ": Missing @Int type annotation on number field: age", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> RuntimeCodec.of(TestClasses.Department.class));
+        assertThrows(UnsupportedOperationException.class, () -> RuntimeCodec.encodeUnion(new TestClasses.Order(), new AggregateBareEncoder()));
+    }
+}
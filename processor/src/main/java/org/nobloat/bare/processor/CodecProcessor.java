@@ -0,0 +1,44 @@
+package org.nobloat.bare.processor;
+
+import org.nobloat.bare.Codec;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Generates a codec class for every type annotated with {@link Codec}, so annotated classes can be decoded and
+ * encoded without reflection at runtime. The generated code matches what {@code CodeGenerator} emits for a schema.
+ */
+@SupportedAnnotationTypes("org.nobloat.bare.Codec")
+public class CodecProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (var element : round.getElementsAnnotatedWith(Codec.class)) {
+            var type = (TypeElement) element;
+            try {
+                var source = new CodecSource(processingEnv, type);
+                var file = processingEnv.getFiler().createSourceFile(source.qualifiedName(), type);
+                try (var writer = file.openWriter()) {
+                    writer.write(source.generate());
+                }
+            } catch (CodecSource.InvalidTypeException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write codec: " + e.getMessage(), type);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,578 @@
+package org.nobloat.bare.processor;
+
+import org.nobloat.bare.Codec;
+import org.nobloat.bare.Int;
+import org.nobloat.bare.Union;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypesException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Source of the codec generated for one {@link Codec} annotated type. Fields are mapped like in
+ * {@link org.nobloat.bare.ReflectiveBareDecoder}: public instance fields in declaration order, numbers by their
+ * {@link Int} annotation, fixed length arrays by the length of the array the field is initialized with, other
+ * classes through their own generated codec. {@code Byte[]} is a fixed length array of {@code i8} as well, only
+ * {@code byte[]} is mapped to variable length {@code data}.
+ */
+final class CodecSource {
+
+    private final Types types;
+    private final Elements elements;
+    private final TypeElement type;
+    private final String packageName;
+    private final String simpleName;
+    private final StringBuilder source = new StringBuilder();
+    private int indent;
+
+    CodecSource(ProcessingEnvironment environment, TypeElement type) {
+        this.types = environment.getTypeUtils();
+        this.elements = environment.getElementUtils();
+        this.type = type;
+        this.packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        this.simpleName = codecName(type);
+    }
+
+    String qualifiedName() {
+        return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    }
+
+    String generate() throws InvalidTypeException {
+        if (!type.getTypeParameters().isEmpty()) {
+            throw new InvalidTypeException("Generic types are not supported: " + type.getQualifiedName(), type);
+        }
+        if (type.getModifiers().contains(Modifier.PRIVATE)) {
+            throw new InvalidTypeException("Private types are not supported: " + type.getQualifiedName(), type);
+        }
+        if (!packageName.isEmpty()) {
+            line("package " + packageName + ";");
+            line("");
+        }
+        line("import org.nobloat.bare.AggregateBareDecoder;");
+        line("import org.nobloat.bare.AggregateBareEncoder;");
+        line("import org.nobloat.bare.BareException;");
+        line("");
+        line("import java.io.IOException;");
+        line("");
+        line("public final class " + simpleName + " {");
+        line("");
+        indent++;
+        var variants = unionVariants();
+        if (!variants.isEmpty()) {
+            createUnion(variants);
+        } else if (type.getKind() == ElementKind.ENUM) {
+            createEnum();
+        } else {
+            createStruct();
+        }
+        line("private " + simpleName + "() {");
+        line("}");
+        indent--;
+        line("}");
+        return source.toString();
+    }
+
+    private void createStruct() throws InvalidTypeException {
+        var name = type.getQualifiedName().toString();
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new InvalidTypeException("Only classes, enums and unions can be annotated with @Codec: " + name, type);
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+            throw new InvalidTypeException("Inner classes are not supported, declare " + name + " static", type);
+        }
+        boolean constructor = ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+                .anyMatch(c -> c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE));
+        if (!constructor) {
+            throw new InvalidTypeException("Missing constructor without arguments: " + name, type);
+        }
+
+        var decode = new ArrayList<String>();
+        var skip = new ArrayList<String>();
+        var encode = new ArrayList<String>();
+        boolean prototype = false;
+        long fixedBytes = 0;
+        for (var field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            var modifiers = field.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC)) {
+                continue;
+            }
+            if (modifiers.contains(Modifier.FINAL)) {
+                throw new InvalidTypeException("Final fields can not be decoded: " + field.getSimpleName(), field);
+            }
+            var fieldType = field.asType();
+            var kind = kind(fieldType);
+            var value = "o." + field.getSimpleName();
+            long size;
+            String skipStatement;
+            if (field.getAnnotation(Int.class) != null || kind == Kind.INTEGER) {
+                var mapping = integerMapping(field);
+                decode.add(value + " = " + decodeInteger(field, mapping) + ";");
+                encode.add(encodeInteger(field, mapping, value) + ";");
+                size = mapping.size;
+                skipStatement = "decoder.skipVarint()";
+            } else if (kind == Kind.ARRAY && ((ArrayType) fieldType).getComponentType().getKind().isPrimitive()) {
+                var component = ((ArrayType) fieldType).getComponentType();
+                var componentKind = checkedKind(component, field);
+                var length = value + ".length";
+                if (componentKind == Kind.BOOL) {
+                    decode.add("for (int i = 0; i < " + length + "; i++) {");
+                    decode.add("\t" + value + "[i] = decoder.bool();");
+                    decode.add("}");
+                    encode.add("for (var v1 : " + value + ") {");
+                    encode.add("\tencoder.bool(v1);");
+                    encode.add("}");
+                } else {
+                    decode.add(value + " = decoder." + componentKind.decode + "Array(" + length + ");");
+                    encode.add("encoder." + componentKind.encode + "Array(" + value + ");");
+                }
+                size = -1;
+                skipStatement = "decoder.skipArray(prototype." + field.getSimpleName() + ".length, " + componentKind.size + ")";
+                prototype = true;
+            } else if (kind == Kind.ARRAY) {
+                var component = ((ArrayType) fieldType).getComponentType();
+                var length = value + ".length";
+                decode.add(value + " = decoder.array(" + length + ", " + decodeFunction(component, 1, field) + ").toArray(new " + types.erasure(component) + "[" + length + "]);");
+                encode.add("encoder.array(" + value + ", " + encodeFunction(component, 1, field) + ");");
+                size = -1;
+                skipStatement = "decoder.skipArray(prototype." + field.getSimpleName() + ".length, " + skipFunction(component, 1, field) + ")";
+                prototype = true;
+            } else {
+                decode.add(value + " = " + decodeExpression(fieldType, "decoder", 0, field) + ";");
+                encode.add(encodeStatement(fieldType, value, 0, field) + ";");
+                size = kind.size;
+                skipStatement = skipStatement(fieldType, "decoder", 0, field);
+            }
+            if (size >= 0) {
+                fixedBytes += size;
+            } else {
+                if (fixedBytes > 0) {
+                    skip.add("decoder.skip(" + fixedBytes + ");");
+                    fixedBytes = 0;
+                }
+                skip.add(skipStatement + ";");
+            }
+        }
+        if (fixedBytes > 0) {
+            skip.add("decoder.skip(" + fixedBytes + ");");
+        }
+        if (prototype) {
+            skip.add(0, "var prototype = new " + name + "();");
+        }
+
+        line("public static " + name + " decode(AggregateBareDecoder decoder) throws IOException, BareException {");
+        indent++;
+        line("var o = new " + name + "();");
+        decode.forEach(this::line);
+        line("return o;");
+        indent--;
+        line("}");
+        line("");
+        method("public static void skip(AggregateBareDecoder decoder) throws IOException, BareException {", skip);
+        method("public static void encode(" + name + " o, AggregateBareEncoder encoder) throws IOException, BareException {", encode);
+    }
+
+    private void createEnum() throws InvalidTypeException {
+        var name = type.getQualifiedName().toString();
+        var valueField = ElementFilter.fieldsIn(type.getEnclosedElements()).stream()
+                .filter(f -> f.getSimpleName().contentEquals("value") && !f.getModifiers().contains(Modifier.STATIC) && !f.getModifiers().contains(Modifier.PRIVATE))
+                .findFirst()
+                .orElseThrow(() -> new InvalidTypeException("Missing value field on enum " + name, type));
+        var valueKind = valueField.asType().getKind();
+        if (valueKind != TypeKind.INT && valueKind != TypeKind.SHORT && valueKind != TypeKind.BYTE) {
+            throw new InvalidTypeException("Enum value field must be an int: " + name, valueField);
+        }
+
+        line("private static final java.util.Map<Integer, " + name + "> VALUES = new java.util.HashMap<>();");
+        line("");
+        line("static {");
+        indent++;
+        line("for (var constant : " + name + ".values()) {");
+        indent++;
+        line("VALUES.putIfAbsent((int) constant.value, constant);");
+        indent--;
+        line("}");
+        indent--;
+        line("}");
+        line("");
+        method("public static " + name + " decode(AggregateBareDecoder decoder) throws IOException, BareException {", List.of(
+                "int value = decoder.variadicUintAsInt();",
+                "var constant = VALUES.get(value);",
+                "if (constant == null) {",
+                "\tthrow new BareException(\"Unexpected enum value: \" + value);",
+                "}",
+                "return constant;"));
+        method("public static void skip(AggregateBareDecoder decoder) throws IOException, BareException {", List.of(
+                "decoder.skipVarint();"));
+        method("public static void encode(" + name + " o, AggregateBareEncoder encoder) throws IOException, BareException {", List.of(
+                "encoder.variadicUInt(o.value);"));
+    }
+
+    private void createUnion(List<TypeElement> variants) throws InvalidTypeException {
+        var name = type.getQualifiedName().toString();
+        var decode = new ArrayList<String>();
+        var skip = new ArrayList<String>();
+        var encode = new ArrayList<String>();
+        decode.add("int id = decoder.variadicUintAsInt();");
+        decode.add("switch (id) {");
+        skip.add("int id = decoder.variadicUintAsInt();");
+        skip.add("switch (id) {");
+        for (var variant : variants) {
+            var variantName = variant.getQualifiedName().toString();
+            var id = variant.getAnnotation(Union.Id.class);
+            if (id == null) {
+                throw new InvalidTypeException("Missing annotation @Union.Id on " + variantName, type);
+            }
+            if (id.value() < 0 || id.value() > Integer.MAX_VALUE) {
+                throw new InvalidTypeException("Union id out of range: " + variantName, variant);
+            }
+            if (variant.getAnnotation(Codec.class) == null) {
+                throw new InvalidTypeException("No codec for " + variantName + ", annotate it with @Codec", type);
+            }
+            if (!types.isAssignable(types.erasure(variant.asType()), types.erasure(type.asType()))) {
+                throw new InvalidTypeException(variantName + " is not a subtype of " + name, type);
+            }
+            var codec = codecOf(variant);
+            decode.add("\tcase " + id.value() + ":");
+            decode.add("\t\treturn " + codec + ".decode(decoder);");
+            skip.add("\tcase " + id.value() + ":");
+            skip.add("\t\t" + codec + ".skip(decoder);");
+            skip.add("\t\treturn;");
+            encode.add((encode.isEmpty() ? "if" : "} else if") + " (o instanceof " + variantName + ") {");
+            encode.add("\tencoder.variadicUInt(" + id.value() + ");");
+            encode.add("\t" + codec + ".encode((" + variantName + ") o, encoder);");
+        }
+        for (var statements : List.of(decode, skip)) {
+            statements.add("\tdefault:");
+            statements.add("\t\tthrow new BareException(\"Unexpected union type: \" + id);");
+            statements.add("}");
+        }
+        encode.add("} else {");
+        encode.add("\tthrow new BareException(\"Unexpected union variant: \" + o.getClass().getName());");
+        encode.add("}");
+
+        method("public static " + name + " decode(AggregateBareDecoder decoder) throws IOException, BareException {", decode);
+        method("public static void skip(AggregateBareDecoder decoder) throws IOException, BareException {", skip);
+        method("public static void encode(" + name + " o, AggregateBareEncoder encoder) throws IOException, BareException {", encode);
+    }
+
+    private List<TypeElement> unionVariants() {
+        List<? extends TypeMirror> mirrors;
+        try {
+            type.getAnnotation(Codec.class).union();
+            mirrors = List.of();
+        } catch (MirroredTypesException e) {
+            mirrors = e.getTypeMirrors();
+        }
+        return mirrors.stream().map(m -> (TypeElement) types.asElement(m)).collect(Collectors.toList());
+    }
+
+    private String decodeExpression(TypeMirror type, String decoder, int depth, Element field) throws InvalidTypeException {
+        var kind = checkedKind(type, field);
+        switch (kind) {
+            case SLICE:
+                return decoder + ".slice(" + decodeFunction(typeArgument(type, 0, field), depth + 1, field) + ")";
+            case MAP:
+                return decoder + ".map(" + decodeFunction(typeArgument(type, 0, field), depth + 1, field) + "," + decodeFunction(typeArgument(type, 1, field), depth + 1, field) + ")";
+            case OPTIONAL:
+                return decoder + ".optional(" + decodeFunction(typeArgument(type, 0, field), depth + 1, field) + ")";
+            case CODEC:
+                return codecOf(types.asElement(type)) + ".decode(" + decoder + ")";
+            default:
+                return decoder + "." + kind.decode + "()";
+        }
+    }
+
+    private String decodeFunction(TypeMirror type, int depth, Element field) throws InvalidTypeException {
+        var kind = checkedKind(type, field);
+        switch (kind) {
+            case SLICE:
+            case MAP:
+            case OPTIONAL:
+                return "d" + depth + " -> " + decodeExpression(type, "d" + depth, depth, field);
+            case CODEC:
+                return codecOf(types.asElement(type)) + "::decode";
+            default:
+                return "AggregateBareDecoder::" + kind.decode;
+        }
+    }
+
+    private String skipStatement(TypeMirror type, String decoder, int depth, Element field) throws InvalidTypeException {
+        var kind = checkedKind(type, field);
+        switch (kind) {
+            case SLICE: {
+                var member = typeArgument(type, 0, field);
+                long size = checkedKind(member, field).size;
+                return decoder + ".skipSlice(" + (size >= 0 ? String.valueOf(size) : skipFunction(member, depth + 1, field)) + ")";
+            }
+            case MAP:
+                return decoder + ".skipMap(" + skipFunction(typeArgument(type, 0, field), depth + 1, field) + "," + skipFunction(typeArgument(type, 1, field), depth + 1, field) + ")";
+            case OPTIONAL:
+                return decoder + ".skipOptional(" + skipFunction(typeArgument(type, 0, field), depth + 1, field) + ")";
+            case CODEC:
+                return codecOf(types.asElement(type)) + ".skip(" + decoder + ")";
+            default:
+                return kind.size >= 0 ? decoder + ".skip(" + kind.size + ")" : decoder + "." + kind.skip + "()";
+        }
+    }
+
+    private String skipFunction(TypeMirror type, int depth, Element field) throws InvalidTypeException {
+        var kind = checkedKind(type, field);
+        if (kind == Kind.CODEC) {
+            return codecOf(types.asElement(type)) + "::skip";
+        }
+        if (kind.skip != null) {
+            return "AggregateBareDecoder::" + kind.skip;
+        }
+        return "d" + depth + " -> " + skipStatement(type, "d" + depth, depth, field);
+    }
+
+    private String encodeStatement(TypeMirror type, String value, int depth, Element field) throws InvalidTypeException {
+        var kind = checkedKind(type, field);
+        switch (kind) {
+            case SLICE:
+                return "encoder.slice(" + value + "," + encodeFunction(typeArgument(type, 0, field), depth + 1, field) + ")";
+            case MAP:
+                return "encoder.map(" + value + "," + encodeFunction(typeArgument(type, 0, field), depth + 1, field) + "," + encodeFunction(typeArgument(type, 1, field), depth + 1, field) + ")";
+            case OPTIONAL:
+                return "encoder.optional(" + value + "," + encodeFunction(typeArgument(type, 0, field), depth + 1, field) + ")";
+            case CODEC:
+                return codecOf(types.asElement(type)) + ".encode(" + value + ", encoder)";
+            default:
+                return "encoder." + kind.encode + "(" + value + ")";
+        }
+    }
+
+    private String encodeFunction(TypeMirror type, int depth, Element field) throws InvalidTypeException {
+        var kind = checkedKind(type, field);
+        switch (kind) {
+            case SLICE:
+            case MAP:
+            case OPTIONAL:
+            case CODEC:
+                return "v" + depth + " -> " + encodeStatement(type, "v" + depth, depth, field);
+            default:
+                return "encoder::" + kind.encode;
+        }
+    }
+
+    private String decodeInteger(VariableElement field, IntegerMapping mapping) {
+        var call = "decoder." + mapping.decode + "()";
+        var fieldType = primitiveName(field.asType());
+        if (fieldType.equals(mapping.type)) {
+            return call;
+        }
+        return fieldType.equals("java.math.BigInteger") ? "java.math.BigInteger.valueOf(" + call + ")" : "(" + fieldType + ") " + call;
+    }
+
+    private String encodeInteger(VariableElement field, IntegerMapping mapping, String value) {
+        var fieldType = field.asType();
+        if (primitiveName(fieldType).equals(mapping.type)) {
+            return "encoder." + mapping.encode + "(" + value + ")";
+        }
+        if (fieldType.getKind().isPrimitive()) {
+            return "encoder." + mapping.encode + "((" + mapping.type + ") " + value + ")";
+        }
+        return "encoder." + mapping.encode + "(" + value + "." + mapping.type + "Value())";
+    }
+
+    private IntegerMapping integerMapping(VariableElement field) throws InvalidTypeException {
+        var annotation = field.getAnnotation(Int.class);
+        if (annotation == null) {
+            throw new InvalidTypeException("Missing @Int type annotation on number field: " + field.getSimpleName(), field);
+        }
+        var kind = kind(field.asType());
+        if (kind != Kind.INTEGER && kind != Kind.I8) {
+            throw new InvalidTypeException("@Int is only supported on number fields: " + field.getSimpleName(), field);
+        }
+        boolean isBig = primitiveName(field.asType()).equals("java.math.BigInteger");
+        switch (annotation.value()) {
+            case u8: return new IntegerMapping("u8", "u8", "byte", 1);
+            case i8: return new IntegerMapping("i8", "i8", "byte", 1);
+            case u16: return new IntegerMapping("u16", "u16", "int", 2);
+            case i16: return new IntegerMapping("i16", "i16", "short", 2);
+            case u32: return new IntegerMapping("u32", "u32", "long", 4);
+            case i32: return new IntegerMapping("i32", "i32", "int", 4);
+            case u64: return isBig ? new IntegerMapping("u64", "u64", "java.math.BigInteger", 8) : new IntegerMapping("u64AsLong", "u64AsLong", "long", 8);
+            case i64: return new IntegerMapping("i64", "i64", "long", 8);
+            case i: return new IntegerMapping("variadicInt", "variadicInt", "long", -1);
+            case ui: return isBig ? new IntegerMapping("variadicUint", "variadicUInt", "java.math.BigInteger", -1) : new IntegerMapping("variadicUintAsLong", "variadicUIntAsLong", "long", -1);
+            default:
+                throw new InvalidTypeException("Unknown Int type: " + annotation.value(), field);
+        }
+    }
+
+    private String primitiveName(TypeMirror type) {
+        if (type.getKind() == TypeKind.DECLARED) {
+            try {
+                return types.unboxedType(type).toString();
+            } catch (IllegalArgumentException e) {
+                return types.erasure(type).toString();
+            }
+        }
+        return type.toString();
+    }
+
+    private Kind kind(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN: return Kind.BOOL;
+            case BYTE: return Kind.I8;
+            case FLOAT: return Kind.F32;
+            case DOUBLE: return Kind.F64;
+            case SHORT:
+            case INT:
+            case LONG:
+                return Kind.INTEGER;
+            case ARRAY: {
+                var component = ((ArrayType) type).getComponentType();
+                return component.getKind() == TypeKind.BYTE ? Kind.DATA_AS_BYTES : Kind.ARRAY;
+            }
+            case DECLARED:
+                switch (types.erasure(type).toString()) {
+                    case "java.lang.Boolean": return Kind.BOOL;
+                    case "java.lang.Byte": return Kind.I8;
+                    case "java.lang.Float": return Kind.F32;
+                    case "java.lang.Double": return Kind.F64;
+                    case "java.lang.String": return Kind.STRING;
+                    case "java.lang.Short":
+                    case "java.lang.Integer":
+                    case "java.lang.Long":
+                    case "java.math.BigInteger":
+                        return Kind.INTEGER;
+                    case "java.util.List": return Kind.SLICE;
+                    case "java.util.Map": return Kind.MAP;
+                    case "java.util.Optional": return Kind.OPTIONAL;
+                    default:
+                        return types.asElement(type).getAnnotation(Codec.class) != null ? Kind.CODEC : Kind.UNSUPPORTED;
+                }
+            default:
+                return Kind.UNSUPPORTED;
+        }
+    }
+
+    /**
+     * Returns the kind of a type that is mapped without the field it belongs to, e.g. of slice items.
+     */
+    private Kind checkedKind(TypeMirror type, Element field) throws InvalidTypeException {
+        var kind = kind(type);
+        switch (kind) {
+            case INTEGER:
+                throw new InvalidTypeException("Integer type " + type + " needs an @Int annotated field: " + field.getSimpleName(), field);
+            case ARRAY:
+                throw new InvalidTypeException("Arrays are only supported as fields: " + field.getSimpleName(), field);
+            case UNSUPPORTED:
+                if (type.getKind() == TypeKind.DECLARED) {
+                    throw new InvalidTypeException("No codec for " + types.erasure(type) + ", annotate it with @Codec", field);
+                }
+                throw new InvalidTypeException("Unsupported type " + type + " of field " + field.getSimpleName(), field);
+            default:
+                return kind;
+        }
+    }
+
+    private TypeMirror typeArgument(TypeMirror type, int index, Element field) throws InvalidTypeException {
+        var arguments = ((DeclaredType) type).getTypeArguments();
+        if (arguments.size() <= index) {
+            throw new InvalidTypeException("Missing type arguments of field " + field.getSimpleName(), field);
+        }
+        return arguments.get(index);
+    }
+
+    private String codecOf(Element element) {
+        var typeElement = (TypeElement) element;
+        var codecPackage = elements.getPackageOf(typeElement).getQualifiedName().toString();
+        return codecPackage.isEmpty() ? codecName(typeElement) : codecPackage + "." + codecName(typeElement);
+    }
+
+    /**
+     * Returns {@code <Type>Codec}, or {@code <Outer>_<Type>Codec} for nested types.
+     */
+    private static String codecName(TypeElement type) {
+        var name = new StringBuilder(type.getSimpleName()).append("Codec");
+        for (var outer = type.getEnclosingElement(); outer instanceof TypeElement; outer = outer.getEnclosingElement()) {
+            name.insert(0, outer.getSimpleName() + "_");
+        }
+        return name.toString();
+    }
+
+    private void method(String signature, List<String> statements) {
+        line(signature);
+        indent++;
+        statements.forEach(this::line);
+        indent--;
+        line("}");
+        line("");
+    }
+
+    private void line(String line) {
+        if (!line.isEmpty()) {
+            source.append("\t".repeat(indent));
+        }
+        source.append(line).append('\n');
+    }
+
+    private enum Kind {
+        BOOL("bool", "skip", "bool", 1),
+        I8("i8", "skip", "i8", 1),
+        F32("f32", "skip", "f32", 4),
+        F64("f64", "skip", "f64", 8),
+        STRING("string", "skipString", "string", -1),
+        DATA_AS_BYTES("dataAsBytes", "skipData", "data", -1),
+        INTEGER, ARRAY, SLICE, MAP, OPTIONAL, CODEC, UNSUPPORTED;
+
+        final String decode;
+        final String skip;
+        final String encode;
+        final long size;
+
+        Kind(String decode, String skip, String encode, long size) {
+            this.decode = decode;
+            this.skip = size >= 0 ? null : skip;
+            this.encode = encode;
+            this.size = size;
+        }
+
+        Kind() {
+            this(null, null, null, -1);
+        }
+    }
+
+    private static final class IntegerMapping {
+        final String decode;
+        final String encode;
+        final String type;
+        final long size;
+
+        IntegerMapping(String decode, String encode, String type, long size) {
+            this.decode = decode;
+            this.encode = encode;
+            this.type = type;
+            this.size = size;
+        }
+    }
+
+    static final class InvalidTypeException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final Element element;
+
+        InvalidTypeException(String message, Element element) {
+            super(message);
+            this.element = element;
+        }
+    }
+}
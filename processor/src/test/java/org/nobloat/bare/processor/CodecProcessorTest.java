@@ -0,0 +1,194 @@
+package org.nobloat.bare.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nobloat.bare.AggregateBareDecoder;
+import org.nobloat.bare.AggregateBareEncoder;
+import org.nobloat.bare.BareException;
+import org.nobloat.bare.ReflectiveBareDecoder;
+import org.nobloat.bare.ReflectiveBareEncoder;
+import org.nobloat.bare.RuntimeCodec;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodecProcessorTest {
+
+    @Test
+    public void testPeople() throws IOException, BareException {
+        for (var file : new String[]{"customer.bin", "employee.bin", "terminated.bin"}) {
+            byte[] expected;
+            try (var is = new FileInputStream("src/test/resources/" + file)) {
+                expected = is.readAllBytes();
+            }
+            var person = TestModel_PersonCodec.decode(new AggregateBareDecoder(expected));
+            var encoder = new AggregateBareEncoder();
+            TestModel_PersonCodec.encode(person, encoder);
+            assertArrayEquals(expected, encoder.toByteArray(), file);
+
+            var decoder = new AggregateBareDecoder(expected);
+            TestModel_PersonCodec.skip(decoder);
+            assertEquals(expected.length, decoder.position(), file);
+        }
+
+        try (var is = new FileInputStream("src/test/resources/customer.bin")) {
+            var customer = assertInstanceOf(TestModel.Customer.class, TestModel_PersonCodec.decode(new AggregateBareDecoder(is)));
+            assertEquals("James Smith", customer.name);
+            assertEquals("123 Main St", customer.address.addressLines[0]);
+            assertEquals(4242424242L, customer.orders.get(0).id);
+            assertEquals(5, customer.orders.get(0).quantity);
+        }
+
+        var encoder = new AggregateBareEncoder();
+        assertThrows(BareException.class, () -> TestModel_PersonCodec.encode(new TestModel.Person() {}, encoder));
+        assertThrows(BareException.class, () -> TestModel_PersonCodec.decode(new AggregateBareDecoder(new byte[]{7})));
+    }
+
+    @Test
+    public void testMatchesRuntimeCodec() throws IOException, BareException {
+        var tail = new TestModel.Node();
+        tail.id = 2;
+        tail.weight = BigInteger.ONE;
+        tail.next = Optional.empty();
+        tail.department = TestModel.Department.ACCOUNTING;
+        tail.scores = Map.of();
+        tail.tags = List.of();
+        var head = new TestModel.Node();
+        head.id = -1L;
+        head.weight = BigInteger.TWO.pow(63);
+        head.flags = (byte) 0xFE;
+        head.active = true;
+        head.next = Optional.of(tail);
+        head.department = TestModel.Department.JSMITH;
+        head.scores = Map.of("x", 0.5);
+        head.tags = List.of("a", "b");
+
+        var encoder = new AggregateBareEncoder();
+        TestModel_NodeCodec.encode(head, encoder);
+        var runtime = new AggregateBareEncoder();
+        RuntimeCodec.of(TestModel.Node.class).encode(head, runtime);
+        assertArrayEquals(runtime.toByteArray(), encoder.toByteArray());
+
+        var decoded = TestModel_NodeCodec.decode(new AggregateBareDecoder(encoder.toByteArray()));
+        assertEquals(-1L, decoded.id);
+        assertEquals(head.weight, decoded.weight);
+        assertEquals((byte) 0xFE, decoded.flags);
+        assertTrue(decoded.active);
+        assertEquals(TestModel.Department.JSMITH, decoded.department);
+        assertEquals(2, decoded.next.orElseThrow().id);
+        assertFalse(decoded.next.orElseThrow().next.isPresent());
+        assertEquals(Map.of("x", 0.5), decoded.scores);
+        assertEquals(List.of("a", "b"), decoded.tags);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException, BareException {
+        var packet = new TestModel.Packet();
+        packet.port = (short) 8080;
+        packet.sequence = 4000000000L;
+        packet.offset = BigInteger.valueOf(-12);
+        packet.ratio = 0.25f;
+        packet.payload = new byte[]{1, 2, 3};
+        packet.checksum = new Byte[]{9, 8};
+        packet.matrix = List.of(List.of(1f, 2f), List.of());
+        packet.flags = Map.of("on", Optional.of(true), "unset", Optional.empty());
+        for (int i = 0; i < packet.orders.length; i++) {
+            packet.orders[i] = new TestModel.Order();
+            packet.orders[i].id = (long) i;
+            packet.orders[i].quantity = i * 10;
+        }
+        packet.bits = new boolean[]{true, false, true};
+        packet.weights = new float[]{0.5f, -1f};
+        packet.position = new double[]{47.1, 15.4};
+        packet.trailer = "end";
+
+        var encoder = new AggregateBareEncoder();
+        TestModel_PacketCodec.encode(packet, encoder);
+        var bytes = encoder.toByteArray();
+
+        var decoded = TestModel_PacketCodec.decode(new AggregateBareDecoder(bytes));
+        assertEquals(8080, decoded.port);
+        assertEquals(4000000000L, decoded.sequence);
+        assertEquals(BigInteger.valueOf(-12), decoded.offset);
+        assertEquals(0.25f, decoded.ratio);
+        assertArrayEquals(packet.payload, decoded.payload);
+        assertArrayEquals(packet.checksum, decoded.checksum);
+        assertEquals(packet.matrix, decoded.matrix);
+        assertEquals(packet.flags, decoded.flags);
+        assertEquals(10, decoded.orders[1].quantity);
+        assertArrayEquals(packet.bits, decoded.bits);
+        assertArrayEquals(packet.weights, decoded.weights);
+        assertArrayEquals(packet.position, decoded.position);
+        assertEquals("end", decoded.trailer);
+
+        var decoder = new AggregateBareDecoder(bytes);
+        TestModel_PacketCodec.skip(decoder);
+        assertEquals(bytes.length, decoder.position());
+    }
+
+    @Test
+    public void testByteArrays() throws IOException, BareException, ReflectiveOperationException {
+        var digest = new TestModel.Digest();
+        digest.checksum = new Byte[]{9, -8};
+        digest.name = "sum";
+
+        var encoder = new AggregateBareEncoder();
+        TestModel_DigestCodec.encode(digest, encoder);
+        var bytes = encoder.toByteArray();
+        assertArrayEquals(new byte[]{9, -8, 3, 's', 'u', 'm'}, bytes);
+
+        var reflective = new ReflectiveBareEncoder();
+        reflective.struct(digest);
+        assertArrayEquals(bytes, reflective.toByteArray());
+        var fromReflective = new ReflectiveBareDecoder(bytes).struct(TestModel.Digest.class);
+        assertArrayEquals(digest.checksum, fromReflective.checksum);
+        assertEquals("sum", fromReflective.name);
+
+        var decoded = TestModel_DigestCodec.decode(new AggregateBareDecoder(bytes));
+        assertArrayEquals(digest.checksum, decoded.checksum);
+        assertEquals("sum", decoded.name);
+    }
+
+    @Test
+    public void testInvalidTypes(@TempDir Path dir) throws IOException {
+        assertCompileError(dir, "Missing @Int type annotation on number field: count",
+                "@Codec public class Invalid { public int count; }");
+        assertCompileError(dir, "No codec for Other, annotate it with @Codec",
+                "@Codec public class Invalid { public java.util.List<Other> others; } class Other {}");
+        assertCompileError(dir, "Integer type java.lang.Long needs an @Int annotated field: ids",
+                "@Codec public class Invalid { public java.util.List<Long> ids; }");
+        assertCompileError(dir, "Integer type int needs an @Int annotated field: counts",
+                "@Codec public class Invalid { public int[] counts = new int[2]; }");
+        assertCompileError(dir, "Missing annotation @Union.Id on Variant",
+                "@Codec(union = Variant.class) public interface Invalid {} @Codec class Variant implements Invalid {}");
+    }
+
+    private static void assertCompileError(Path dir, String message, String source) throws IOException {
+        var file = dir.resolve("Invalid.java");
+        Files.writeString(file, "import org.nobloat.bare.*;\n" + source);
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        try (var files = compiler.getStandardFileManager(diagnostics, null, null)) {
+            var options = List.of("-classpath", System.getProperty("java.class.path"), "-d", dir.toString(), "-s", dir.toString());
+            var task = compiler.getTask(null, files, diagnostics, options, null, files.getJavaFileObjects(file.toFile()));
+            assertFalse(task.call(), source);
+        }
+        assertTrue(diagnostics.getDiagnostics().stream().anyMatch(d -> d.getMessage(null).contains(message)), diagnostics.getDiagnostics().toString());
+    }
+}
@@ -0,0 +1,112 @@
+package org.nobloat.bare.processor;
+
+import org.nobloat.bare.Codec;
+import org.nobloat.bare.Int;
+import org.nobloat.bare.Union;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class TestModel {
+
+    @Codec(union = {Customer.class, Employee.class, TerminatedEmployee.class})
+    public interface Person {
+    }
+
+    @Codec
+    @Union.Id(0)
+    public static class Customer implements Person {
+        public String name;
+        public String email;
+        public Address address;
+        public List<Order> orders;
+        public Map<String, String> metadata;
+    }
+
+    @Codec
+    @Union.Id(1)
+    public static class Employee implements Person {
+        public String name;
+        public String email;
+        public Address address;
+        public Department department;
+        public String hireDate;
+        public List<Byte> publicKey;
+        public Map<String, String> metadata;
+    }
+
+    @Codec
+    @Union.Id(2)
+    public static class TerminatedEmployee implements Person {
+
+    }
+
+    @Codec
+    public static class Address {
+        public String[] addressLines = new String[4];
+        public String city;
+        public String sate;
+        public String country;
+    }
+
+    @Codec
+    public static class Order {
+        @Int(Int.Type.i64)
+        public Long id;
+        @Int(Int.Type.i32)
+        public Integer quantity;
+    }
+
+    @Codec
+    public enum Department {
+        ACCOUNTING(0), ADMINISTRATION(1), CUSTOMER_SERVICE(2), DEVELOPMENT(3), JSMITH(99);
+        @Int(Int.Type.ui)
+        public int value;
+        Department(int value) {
+            this.value = value;
+        }
+    }
+
+    @Codec
+    public static class Node {
+        @Int(Int.Type.u64)
+        public long id;
+        @Int(Int.Type.ui)
+        public BigInteger weight;
+        @Int(Int.Type.u8)
+        public byte flags;
+        public boolean active;
+        public Optional<Node> next;
+        public Department department;
+        public Map<String, Double> scores;
+        public List<String> tags;
+    }
+
+    @Codec
+    public static class Digest {
+        public Byte[] checksum = new Byte[2];
+        public String name;
+    }
+
+    @Codec
+    public static class Packet {
+        @Int(Int.Type.u16)
+        public short port;
+        @Int(Int.Type.u32)
+        public Long sequence;
+        @Int(Int.Type.i)
+        public BigInteger offset;
+        public float ratio;
+        public byte[] payload;
+        public Byte[] checksum = new Byte[2];
+        public List<List<Float>> matrix;
+        public Map<String, Optional<Boolean>> flags;
+        public Order[] orders = new Order[2];
+        public boolean[] bits = new boolean[3];
+        public float[] weights = new float[2];
+        public double[] position = new double[2];
+        public String trailer;
+    }
+}
@@ -8,9 +8,11 @@ public class ByteToHexStaticMethods {
     private boolean byteToHex = false;
     private boolean byteArrayToHex = false;
     private boolean byteSliceToHex = false;
+    private final boolean dataAsBytes;
 
-    public ByteToHexStaticMethods(CodeWriter codeWriter) {
+    public ByteToHexStaticMethods(CodeWriter codeWriter, boolean dataAsBytes) {
         this.codeWriter = codeWriter;
+        this.dataAsBytes = dataAsBytes;
     }
 
     public String callByteToHex(String fieldName) {
@@ -24,6 +26,9 @@ public class ByteToHexStaticMethods {
     }
 
     public String callByteSliceToHex(String fieldName) {
+        if (dataAsBytes) {
+            return callByteArrayToHex(fieldName);
+        }
         byteSliceToHex = true;
         return String.format("bytesToHex(%s)", fieldName);
     }
@@ -31,7 +36,9 @@ public class ByteToHexStaticMethods {
     public void enableToStringMethod(Ast.TypeKind kind) {
         if (kind == Ast.TypeKind.DataArray)
             byteArrayToHex = true;
-        else if(kind == Ast.TypeKind.DataSlice) {
+        else if(kind == Ast.TypeKind.DataSlice && dataAsBytes) {
+            byteArrayToHex = true;
+        } else if(kind == Ast.TypeKind.DataSlice) {
             byteSliceToHex = true;
         }
     }
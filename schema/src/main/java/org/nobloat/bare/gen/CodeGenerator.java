@@ -13,6 +13,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -34,6 +35,11 @@ public class CodeGenerator {
     private final Set<String> usedTypes = new HashSet<>();
     private ByteToHexStaticMethods byteToHexStaticMethods;
 
+    public boolean UnsignedAsLong = false;
+    public boolean DataAsBytes = false;
+    public boolean LazyViews = false;
+    public boolean ParallelCollections = false;
+
     public CodeGenerator(String packageName, String className, List<Ast.Type> types, OutputStream target) {
         this.packageName = packageName;
         this.types = types;
@@ -53,7 +59,7 @@ public class CodeGenerator {
         messagesSection.newline();
         writer.indent();
 
-        byteToHexStaticMethods = new ByteToHexStaticMethods(writer);
+        byteToHexStaticMethods = new ByteToHexStaticMethods(writer, DataAsBytes);
 
         for (var type : types) {
             createJavaType(type);
@@ -125,6 +131,13 @@ public class CodeGenerator {
         writer.write("}");
         writer.newline();
 
+        writer.write("public static void skip(AggregateBareDecoder decoder) throws IOException, BareException {");
+        writer.indent();
+        writer.write(skipStatement(type.type, "decoder") + ";");
+        writer.dedent();
+        writer.write("}");
+        writer.newline();
+
         writer.write("public void encode(AggregateBareEncoder encoder) throws IOException, BareException {");
         writer.indent();
         writer.write(encodeStatement(type.type, "value") + ";");
@@ -132,7 +145,7 @@ public class CodeGenerator {
         writer.write("}");
         writer.newline();
 
-        ToStringMethod toStringMethod = new ToStringMethod(writer, type.name, byteToHexStaticMethods);
+        ToStringMethod toStringMethod = new ToStringMethod(writer, type.name, byteToHexStaticMethods, UnsignedAsLong);
         toStringMethod.addField(type, "value");
         toStringMethod.writeEpilog();
 
@@ -147,6 +160,7 @@ public class CodeGenerator {
 
         var fieldSection = structSection.section();
         var decodeSection = structSection.section();
+        var skipSection = structSection.section();
         var encodeSection = structSection.section();
         var toStringSection = structSection.section();
 
@@ -161,13 +175,18 @@ public class CodeGenerator {
         decodeSection.indent();
         decodeSection.write("var o = new " + struct.name + "();");
 
+        skipSection.indent();
+        skipSection.write("public static void skip(AggregateBareDecoder decoder) throws IOException, BareException {");
+        skipSection.indent();
+        long fixedBytes = 0;
+
         encodeSection.indent();
         encodeSection.write("public void encode(AggregateBareEncoder encoder) throws IOException, BareException {");
         encodeSection.indent();
 
         toStringSection.indent();
 
-        ToStringMethod toStringMethod = new ToStringMethod(toStringSection, struct.name, byteToHexStaticMethods);
+        ToStringMethod toStringMethod = new ToStringMethod(toStringSection, struct.name, byteToHexStaticMethods, UnsignedAsLong);
 
         for (var field : fields) {
             String fieldMapping = "public " + fieldTypeMap(field.type) + " " + field.name;
@@ -178,6 +197,17 @@ public class CodeGenerator {
             fieldSection.write(fieldMapping + ";");
 
             decodeSection.write("o." + field.name + " = " + decodeStatement(field.type) + ";");
+
+            long size = fixedSize(field.type);
+            if (size >= 0) {
+                fixedBytes += size;
+            } else {
+                if (fixedBytes > 0) {
+                    skipSection.write("decoder.skip(" + fixedBytes + ");");
+                    fixedBytes = 0;
+                }
+                skipSection.write(skipStatement(field.type, "decoder") + ";");
+            }
             encodeSection.write(encodeStatement(field.type, field.name) + ";");
 
             toStringMethod.addField(field.type, field.name);
@@ -190,6 +220,13 @@ public class CodeGenerator {
         decodeSection.write("}");
         decodeSection.newline();
 
+        if (fixedBytes > 0) {
+            skipSection.write("decoder.skip(" + fixedBytes + ");");
+        }
+        skipSection.dedent();
+        skipSection.write("}");
+        skipSection.newline();
+
         encodeSection.dedent();
         encodeSection.write("}");
         encodeSection.newline();
@@ -198,6 +235,125 @@ public class CodeGenerator {
 
         structSection.write("}");
         structSection.newline();
+
+        if (LazyViews) {
+            createView(struct.name, fields);
+        }
+    }
+
+    public void createView(String name, List<Ast.StructField> fields) throws BareException {
+        usedTypes.add("java.nio.ByteBuffer");
+
+        var view = writer.section();
+        var viewName = name + "View";
+
+        view.write("public static class " + viewName + " {");
+        view.newline();
+        view.indent();
+
+        view.write("private final AggregateBareDecoder decoder;");
+        view.write("private final int[] offsets = new int[" + (fields.size() + 1) + "];");
+        view.write("private int resolved;");
+        view.newline();
+
+        view.write("public " + viewName + "(ByteBuffer buffer) {");
+        view.indent();
+        view.write("this(new AggregateBareDecoder(buffer));");
+        view.dedent();
+        view.write("}");
+        view.newline();
+
+        view.write("public " + viewName + "(AggregateBareDecoder decoder) {");
+        view.indent();
+        view.write("this.decoder = decoder;");
+        view.write("this.offsets[0] = decoder.position();");
+        view.write("this.resolved = 1;");
+        view.dedent();
+        view.write("}");
+        view.newline();
+
+        view.write("public void reset(ByteBuffer buffer) {");
+        view.indent();
+        view.write("decoder.reset(buffer);");
+        view.write("offsets[0] = decoder.position();");
+        view.write("resolved = 1;");
+        view.dedent();
+        view.write("}");
+        view.newline();
+
+        for (int i = 0; i < fields.size(); i++) {
+            var field = fields.get(i);
+            var type = javaType(field.type, false);
+            view.write("public " + type + " " + field.name + "() throws IOException, BareException {");
+            view.indent();
+            view.write("seek(" + i + ");");
+            view.write("var value = " + decodeStatement(field.type) + ";");
+            view.write("mark(" + (i + 1) + ");");
+            view.write("return value;");
+            view.dedent();
+            view.write("}");
+            view.newline();
+        }
+
+        view.write("public int size() throws IOException, BareException {");
+        view.indent();
+        view.write("seek(" + fields.size() + ");");
+        view.write("return offsets[" + fields.size() + "] - offsets[0];");
+        view.dedent();
+        view.write("}");
+        view.newline();
+
+        view.write("public " + name + " decode() throws IOException, BareException {");
+        view.indent();
+        view.write("seek(0);");
+        view.write("var value = " + name + ".decode(decoder);");
+        view.write("mark(" + fields.size() + ");");
+        view.write("return value;");
+        view.dedent();
+        view.write("}");
+        view.newline();
+
+        view.write("private void seek(int field) throws IOException, BareException {");
+        view.indent();
+        view.write("while (resolved <= field) {");
+        view.indent();
+        view.write("decoder.position(offsets[resolved - 1]);");
+        view.write("skip(resolved - 1);");
+        view.write("offsets[resolved++] = decoder.position();");
+        view.dedent();
+        view.write("}");
+        view.write("decoder.position(offsets[field]);");
+        view.dedent();
+        view.write("}");
+        view.newline();
+
+        view.write("private void mark(int field) {");
+        view.indent();
+        view.write("if (resolved == field) {");
+        view.indent();
+        view.write("offsets[resolved++] = decoder.position();");
+        view.dedent();
+        view.write("}");
+        view.dedent();
+        view.write("}");
+        view.newline();
+
+        view.write("private void skip(int field) throws IOException, BareException {");
+        view.indent();
+        view.write("switch(field) {");
+        view.indent();
+        for (int i = 0; i < fields.size(); i++) {
+            view.write("case " + i + ": " + skipStatement(fields.get(i).type, "decoder") + "; break;");
+        }
+        view.write("default: throw new IndexOutOfBoundsException(\"Unknown field: \" + field);");
+        view.dedent();
+        view.write("}");
+        view.dedent();
+        view.write("}");
+
+        view.dedent();
+        view.write("}");
+        view.newline();
     }
 
     private String encodeStatement(Ast.Type type, String name) throws BareException {
@@ -222,7 +378,7 @@ public class CodeGenerator {
                 return "encoder.i32(" + name + ")";
             case U64:
                 usedTypes.add("org.nobloat.bare.Int");
-                return "encoder.u64(" + name + ")";
+                return UnsignedAsLong ? "encoder.u64AsLong(" + name + ")" : "encoder.u64(" + name + ")";
             case I64:
                 usedTypes.add("org.nobloat.bare.Int");
                 return "encoder.i64(" + name + ")";
@@ -239,7 +395,7 @@ public class CodeGenerator {
                 return "encoder.variadicInt(" + name + ")";
             case UINT:
                 usedTypes.add("org.nobloat.bare.Int");
-                return "encoder.variadicUInt(" + name + ")";
+                return UnsignedAsLong ? "encoder.variadicUIntAsLong(" + name + ")" : "encoder.variadicUInt(" + name + ")";
             case DataSlice:
                 return "encoder.data(" + name + ")";
             case NamedUserType:
@@ -249,9 +405,15 @@ public class CodeGenerator {
                 usedTypes.add("java.util.Optional");
                 return "encoder.optional(" + name + "," + encodeLambda(((Ast.OptionalType) type).subType) + ")";
             case Map:
+                if (ParallelCollections) {
+                    return "encoder.parallelMap(" + name + "," + parallelEncodeLambda(((Ast.MapType) type).key) + "," + parallelEncodeLambda(((Ast.MapType) type).value) + ")";
+                }
                 return "encoder.map(" + name + "," + encodeLambda(((Ast.MapType) type).key) + "," + encodeLambda(((Ast.MapType) type).value) + ")";
             case Slice:
                 usedTypes.add("java.util.stream.Collectors");
+                if (ParallelCollections) {
+                    return "encoder.parallelSlice(" + name + "," + parallelEncodeLambda(((Ast.ArrayType) type).member) + ")";
+                }
                 return "encoder.slice(" + name + "," + encodeLambda(((Ast.ArrayType) type).member) + ")";
             case DataArray:
                 return "encoder.array(" + name + ")";
@@ -263,6 +425,15 @@ public class CodeGenerator {
         }
     }
 
+    // Lambda taking the item and the encoder of the chunk it is written to
+    private String parallelEncodeLambda(Ast.Type type) throws BareException {
+        var lambda = encodeLambda(type);
+        if (lambda.startsWith("encoder::")) {
+            return "(o, e) -> e." + lambda.substring("encoder::".length()) + "(o)";
+        }
+        return "(o, e) -> o.encode(e)";
+    }
+
     private String encodeLambda(Ast.Type type) throws BareException {
         switch (type.kind) {
             case U8:
@@ -278,7 +449,7 @@ public class CodeGenerator {
             case I32:
                 return "encoder::i32";
             case U64:
-                return "encoder::u64";
+                return UnsignedAsLong ? "encoder::u64AsLong" : "encoder::u64";
             case I64:
                 return "encoder::i64";
             case STRING:
@@ -292,7 +463,7 @@ public class CodeGenerator {
             case INT:
                 return "encoder::variadicInt";
             case UINT:
-                return "encoder::variadicUInt";
+                return UnsignedAsLong ? "encoder::variadicUIntAsLong" : "encoder::variadicUInt";
             case DataSlice:
                 return "encoder::data";
             case Struct:
@@ -304,7 +475,7 @@ public class CodeGenerator {
         }
     }
 
-    public void createUnion(Ast.UnionType union) {
+    public void createUnion(Ast.UnionType union) throws BareException {
 
         usedTypes.add("org.nobloat.bare.Union");
 
@@ -329,6 +500,21 @@ public class CodeGenerator {
         writer.write("}");
         writer.newline();
 
+        writer.write("public static void skip(AggregateBareDecoder decoder) throws IOException, BareException {");
+        writer.indent();
+        writer.write("var type = decoder.variadicUintAsInt();");
+        writer.write("switch(type) {");
+        writer.indent();
+        for (var variant : union.variants) {
+            writer.write("case " + variant.tag + ": " + skipStatement(variant.subtype, "decoder") + "; break;");
+        }
+        writer.write("default: throw new BareException(\"Unknown union type: \" + type);");
+        writer.dedent();
+        writer.write("}");
+        writer.dedent();
+        writer.write("}");
+        writer.newline();
+
         types = union.variants.stream().map(v -> v.tag + ", o -> ((" + v.subtype.name + ")o).encode(encoder)").collect(Collectors.joining(","));
 
         writer.write("public void encode(AggregateBareEncoder encoder) throws IOException, BareException {");
@@ -364,7 +550,7 @@ public class CodeGenerator {
         writer.write("public static " + enumeration.name + " decode(AggregateBareDecoder decoder) throws IOException, BareException {");
         writer.indent();
 
-        writer.write("var i = decoder.variadicUint().intValue();");
+        writer.write("var i = decoder.variadicUintAsInt();");
         writer.write("switch(i) {");
         writer.indent();
 
@@ -380,6 +566,13 @@ public class CodeGenerator {
         writer.write("}");
         writer.newline();
 
+        writer.write("public static void skip(AggregateBareDecoder decoder) throws IOException, BareException {");
+        writer.indent();
+        writer.write("decoder.skipVarint();");
+        writer.dedent();
+        writer.write("}");
+        writer.newline();
+
         writer.write("public void encode(AggregateBareEncoder encoder) throws IOException, BareException {");
         writer.indent();
         writer.write("encoder.variadicUInt(value);");
@@ -413,7 +606,7 @@ public class CodeGenerator {
                 return "decoder.i32()";
             case U64:
                 usedTypes.add("org.nobloat.bare.Int");
-                return "decoder.u64()";
+                return UnsignedAsLong ? "decoder.u64AsLong()" : "decoder.u64()";
             case I64:
                 usedTypes.add("org.nobloat.bare.Int");
                 return "decoder.i64()";
@@ -430,9 +623,9 @@ public class CodeGenerator {
                 return "decoder.variadicInt()";
             case UINT:
                 usedTypes.add("org.nobloat.bare.Int");
-                return "decoder.variadicUint()";
+                return UnsignedAsLong ? "decoder.variadicUintAsLong()" : "decoder.variadicUint()";
             case DataSlice:
-                return "decoder.data()";
+                return DataAsBytes ? "decoder.dataAsBytes()" : "decoder.data()";
             case DataArray:
                 return "decoder.data(" + ((Ast.DataType) type).length + ")";
             case NamedUserType:
@@ -467,7 +660,7 @@ public class CodeGenerator {
             case I32:
                 return "AggregateBareDecoder::i32";
             case U64:
-                return "AggregateBareDecoder::u64";
+                return UnsignedAsLong ? "AggregateBareDecoder::u64AsLong" : "AggregateBareDecoder::u64";
             case I64:
                 return "AggregateBareDecoder::i64";
             case STRING:
@@ -481,9 +674,9 @@ public class CodeGenerator {
             case INT:
                 return "AggregateBareDecoder::variadicInt";
             case UINT:
-                return "AggregateBareDecoder::variadicUint";
+                return UnsignedAsLong ? "AggregateBareDecoder::variadicUintAsLong" : "AggregateBareDecoder::variadicUint";
             case DataSlice:
-                return "AggregateBareDecoder::data";
+                return DataAsBytes ? "AggregateBareDecoder::dataAsBytes" : "AggregateBareDecoder::data";
             case Struct:
             case NamedUserType:
             case DefinedUserType:
@@ -493,6 +686,88 @@ public class CodeGenerator {
         }
     }
 
+    private String skipStatement(Ast.Type type, String decoder) throws BareException {
+        long size = fixedSize(type);
+        if (size >= 0) {
+            return decoder + ".skip(" + size + ")";
+        }
+        switch (type.kind) {
+            case STRING:
+                return decoder + ".skipString()";
+            case INT:
+            case UINT:
+                return decoder + ".skipVarint()";
+            case DataSlice:
+                return decoder + ".skipData()";
+            case NamedUserType:
+            case DefinedUserType:
+                return type.name + ".skip(" + decoder + ")";
+            case Optional:
+                return decoder + ".skipOptional(" + skipLambda(((Ast.OptionalType) type).subType, decoder) + ")";
+            case Map:
+                return decoder + ".skipMap(" + skipLambda(((Ast.MapType) type).key, decoder) + "," + skipLambda(((Ast.MapType) type).value, decoder) + ")";
+            case Slice: {
+                var member = ((Ast.ArrayType) type).member;
+                long memberSize = fixedSize(member);
+                if (memberSize >= 0) {
+                    return decoder + ".skipSlice(" + memberSize + ")";
+                }
+                return decoder + ".skipSlice(" + skipLambda(member, decoder) + ")";
+            }
+            case Array:
+                return decoder + ".skipArray(" + ((Ast.ArrayType) type).length + ", " + skipLambda(((Ast.ArrayType) type).member, decoder) + ")";
+            default:
+                throw new BareException("Unknown skipStatement for " + type.name);
+        }
+    }
+
+    private String skipLambda(Ast.Type type, String decoder) throws BareException {
+        switch (type.kind) {
+            case STRING:
+                return "AggregateBareDecoder::skipString";
+            case INT:
+            case UINT:
+                return "AggregateBareDecoder::skipVarint";
+            case DataSlice:
+                return "AggregateBareDecoder::skipData";
+            case Struct:
+            case NamedUserType:
+            case DefinedUserType:
+                return type.name + "::skip";
+            default:
+                var parameter = decoder + "0";
+                return parameter + " -> " + skipStatement(type, parameter);
+        }
+    }
+
+    private long fixedSize(Ast.Type type) {
+        switch (type.kind) {
+            case U8:
+            case I8:
+            case Bool:
+                return 1;
+            case U16:
+            case I16:
+                return 2;
+            case U32:
+            case I32:
+            case F32:
+                return 4;
+            case U64:
+            case I64:
+            case F64:
+                return 8;
+            case DataArray:
+                return ((Ast.DataType) type).length;
+            case Array: {
+                long memberSize = fixedSize(((Ast.ArrayType) type).member);
+                return memberSize < 0 ? -1 : memberSize * ((Ast.ArrayType) type).length;
+            }
+            default:
+                return -1;
+        }
+    }
+
     private String toArrayType(Ast.Type type) throws BareException {
         switch (type.kind) {
             case DataArray:
@@ -506,6 +781,10 @@ public class CodeGenerator {
                 return "Integer[]";
             case UINT:
             case U64:
+                if (UnsignedAsLong) {
+                    return "Long[]";
+                }
+                usedTypes.add("java.math.BigInteger");
                 return "BigInteger[]";
             case Bool:
                 return "Boolean[]";
@@ -527,24 +806,34 @@ public class CodeGenerator {
     }
 
     private String fieldTypeMap(Ast.Type type) throws BareException {
+        return javaType(type, true);
+    }
+
+    /**
+     * Returns the Java type of a field, without the {@code @Int} annotations of integer types unless {@code annotated}.
+     */
+    private String javaType(Ast.Type type, boolean annotated) throws BareException {
         switch (type.kind) {
             case U8:
-                return "@Int(Int.Type.u8) byte";
+                return intType("u8", "byte", annotated);
             case I8:
-                return "@Int(Int.Type.i8) short";
+                return intType("i8", "short", annotated);
             case U16:
-                return "@Int(Int.Type.u16) int";
+                return intType("u16", "int", annotated);
             case I16:
-                return "@Int(Int.Type.i16) short";
+                return intType("i16", "short", annotated);
             case U32:
-                return "@Int(Int.Type.u32) long";
+                return intType("u32", "long", annotated);
             case I32:
-                return "@Int(Int.Type.i32) int";
+                return intType("i32", "int", annotated);
             case U64:
+                if (UnsignedAsLong) {
+                    return intType("u64", "long", annotated);
+                }
                 usedTypes.add("java.math.BigInteger");
-                return "@Int(Int.Type.u64) BigInteger";
+                return intType("u64", "BigInteger", annotated);
             case I64:
-                return "@Int(Int.Type.i64) long";
+                return intType("i64", "long", annotated);
             case STRING:
                 return "String";
             case Bool:
@@ -554,25 +843,28 @@ public class CodeGenerator {
             case F64:
                 return "double";
             case INT:
-                return "@Int(Int.Type.i) long";
+                return intType("i", "long", annotated);
             case UINT:
+                if (UnsignedAsLong) {
+                    return intType("ui", "long", annotated);
+                }
                 usedTypes.add("java.math.BigInteger");
-                return "@Int(Int.Type.ui) BigInteger";
+                return intType("ui", "BigInteger", annotated);
             case DataSlice:
-                return "Byte[]";
+                return DataAsBytes ? "byte[]" : "Byte[]";
             case DataArray:
                 return "byte[]";
             case NamedUserType:
             case DefinedUserType:
                 return type.name;
             case Optional:
-                return "Optional<" + fieldTypeMap(((Ast.OptionalType) type).subType) + ">";
+                return "Optional<" + javaType(((Ast.OptionalType) type).subType, annotated) + ">";
             case Map:
                 usedTypes.add("java.util.Map");
-                return "Map<" + fieldTypeMap(((Ast.MapType) type).key) + "," + fieldTypeMap(((Ast.MapType) type).value) + ">";
+                return "Map<" + javaType(((Ast.MapType) type).key, annotated) + "," + javaType(((Ast.MapType) type).value, annotated) + ">";
             case Slice:
                 usedTypes.add("java.util.List");
-                return "List<" + fieldTypeMap(((Ast.ArrayType) type).member) + ">";
+                return "List<" + javaType(((Ast.ArrayType) type).member, annotated) + ">";
             case Array:
                 return toArrayType(((Ast.ArrayType) type).member);
             case Struct:
@@ -582,10 +874,21 @@ public class CodeGenerator {
         }
     }
 
-    public static void main(String[] args) throws Exception {
+    private static String intType(String intType, String javaType, boolean annotated) {
+        return annotated ? "@Int(Int.Type." + intType + ") " + javaType : javaType;
+    }
+
+    public static void main(String[] arguments) throws Exception {
+        var options = Arrays.stream(arguments).filter(a -> a.startsWith("--")).collect(Collectors.toSet());
+        var args = Arrays.stream(arguments).filter(a -> !a.startsWith("--")).toArray(String[]::new);
+
         if (args.length < 1) {
-            System.out.println("Usage: java -jar bare-jvm.jar schame.bare [Messages.java] [output-directory]");
+            System.out.println("Usage: java -jar bare-jvm.jar [--unsigned-long] [--data-as-bytes] [--lazy-views] [--parallel-collections] schame.bare [Messages.java] [output-directory]");
             System.err.println("   Input schema required");
+            System.err.println("   --unsigned-long  map u64 and uint to long holding the unsigned bits instead of BigInteger");
+            System.err.println("   --data-as-bytes  map data to byte[] instead of Byte[]");
+            System.err.println("   --lazy-views     generate a <Struct>View per struct decoding fields on demand from a buffer");
+            System.err.println("   --parallel-collections  encode large slices and maps in parallel chunks");
             System.exit(1);
         }
 
@@ -617,7 +920,12 @@ public class CodeGenerator {
             Lexer lexer = new Lexer(scanner);
             AstParser parser = new AstParser(lexer);
             var types = parser.parse();
-            new CodeGenerator(packageName, className, types, target).createJavaTypes();
+            var generator = new CodeGenerator(packageName, className, types, target);
+            generator.UnsignedAsLong = options.contains("--unsigned-long");
+            generator.DataAsBytes = options.contains("--data-as-bytes");
+            generator.LazyViews = options.contains("--lazy-views");
+            generator.ParallelCollections = options.contains("--parallel-collections");
+            generator.createJavaTypes();
         }
     }
 
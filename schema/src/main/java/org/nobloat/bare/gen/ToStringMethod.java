@@ -8,11 +8,13 @@ class ToStringMethod {
     private final String className;
     private String fieldSeparator = "";
     private ByteToHexStaticMethods byteToHexStaticMethods;
+    private final boolean unsignedAsLong;
 
-    public ToStringMethod(CodeWriter codeWriter, String className, ByteToHexStaticMethods byteToHexStaticMethods) {
+    public ToStringMethod(CodeWriter codeWriter, String className, ByteToHexStaticMethods byteToHexStaticMethods, boolean unsignedAsLong) {
         this.codeWriter = codeWriter;
         this.className = className;
         this.byteToHexStaticMethods = byteToHexStaticMethods;
+        this.unsignedAsLong = unsignedAsLong;
         writeProlog();
     }
 
@@ -31,6 +33,10 @@ class ToStringMethod {
             case U8:
                 field = byteToHexStaticMethods.callByteToHex(fieldName);
                 break;
+            case U64:
+            case UINT:
+                field = unsignedAsLong ? "Long.toUnsignedString(" + fieldName + ")" : fieldName;
+                break;
             case DataArray:
                 field = byteToHexStaticMethods.callByteArrayToHex(fieldName);
                 break;
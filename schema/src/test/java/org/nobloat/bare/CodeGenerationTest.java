@@ -1,18 +1,23 @@
 package org.nobloat.bare;
 
 import org.junit.jupiter.api.Test;
+import org.nobloat.bare.test.ByteDtos;
 import org.nobloat.bare.test.Dtos;
 import org.nobloat.bare.test.NumberDtos;
+import org.nobloat.bare.test.UnsignedNumberDtos;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class CodeGenerationTest {
 
@@ -58,6 +63,33 @@ public class CodeGenerationTest {
         assertArrayEquals(employee.metadata.get("key1"), decodedEmployee.metadata.get("key1"));
     }
 
+    @Test
+    public void testDecodeFromBuffer() throws IOException, BareException {
+        Dtos.Employee employee = createEmployee();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        employee.encode(new AggregateBareEncoder(outputStream));
+
+        Dtos.Employee decodedEmployee = Dtos.Employee.decode(new AggregateBareDecoder(outputStream.toByteArray()));
+        assertEquals(employee.toString(), decodedEmployee.toString());
+    }
+
+    @Test
+    public void testDataAsBytes() throws IOException, BareException {
+        Dtos.Employee employee = createEmployee();
+        AggregateBareEncoder encoder = new AggregateBareEncoder();
+        employee.encode(encoder);
+
+        ByteDtos.Employee decodedEmployee = ByteDtos.Employee.decode(new AggregateBareDecoder(encoder.toByteArray()));
+        assertArrayEquals(new byte[]{(byte) 0x80, 0x3}, decodedEmployee.arbitraryData);
+        assertArrayEquals(new byte[]{(byte) 0x80}, decodedEmployee.metadata.get("key1"));
+        assertEquals(employee.toString(), decodedEmployee.toString());
+
+        AggregateBareEncoder byteEncoder = new AggregateBareEncoder();
+        decodedEmployee.encode(byteEncoder);
+        assertArrayEquals(encoder.toByteArray(), byteEncoder.toByteArray());
+    }
+
     @Test
     public void tesTNumbers() throws IOException, BareException {
         NumberDtos.Numbers numbers = new NumberDtos.Numbers();
@@ -70,6 +102,8 @@ public class CodeGenerationTest {
         numbers.usmaller = 0x01;
         numbers.unormal = 4294967295L;
         numbers.ubig = BigInteger.TEN;
+        numbers.uvariadic = new BigInteger("18446744073709551615");
+        numbers.svariadic = -4242;
 
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         AggregateBareEncoder encoder = new AggregateBareEncoder(outputStream);
@@ -90,6 +124,95 @@ public class CodeGenerationTest {
         assertEquals(numbers.usmaller, decodecNumbers.usmaller);
         assertEquals(numbers.unormal, decodecNumbers.unormal);
         assertEquals(numbers.ubig, decodecNumbers.ubig);
+        assertEquals(numbers.uvariadic, decodecNumbers.uvariadic);
+        assertEquals(numbers.svariadic, decodecNumbers.svariadic);
+    }
+
+    @Test
+    public void testUnsignedAsLong() throws IOException, BareException {
+        UnsignedNumberDtos.Numbers numbers = new UnsignedNumberDtos.Numbers();
+        numbers.ubig = -2L;
+        numbers.uvariadic = -1L;
+        numbers.svariadic = -4242;
+
+        AggregateBareEncoder encoder = new AggregateBareEncoder();
+        numbers.encode(encoder);
+
+        var decoded = NumberDtos.Numbers.decode(new AggregateBareDecoder(encoder.toByteArray()));
+        assertEquals(new BigInteger("18446744073709551614"), decoded.ubig);
+        assertEquals(new BigInteger("18446744073709551615"), decoded.uvariadic);
+
+        var decodedUnsigned = UnsignedNumberDtos.Numbers.decode(new AggregateBareDecoder(encoder.toByteArray()));
+        assertEquals(-2L, decodedUnsigned.ubig);
+        assertEquals(-1L, decodedUnsigned.uvariadic);
+        assertEquals(-4242, decodedUnsigned.svariadic);
+        assertTrue(decodedUnsigned.toString().contains("ubig=18446744073709551614, "));
+    }
+
+    @Test
+    public void testSkip() throws IOException, BareException {
+        var customer = new Dtos.Customer();
+        customer.age = 42;
+        customer.name = "name";
+        customer.email = "mail";
+        customer.address = createEmployee().address;
+        var order = new Dtos.Order();
+        order.orderId = 7;
+        order.quantity = 3;
+        customer.orders = List.of(order, order);
+        customer.metadata = new HashMap<>();
+        customer.metadata.put("key1", new Byte[]{0x1, 0x2});
+
+        AggregateBareEncoder encoder = new AggregateBareEncoder();
+        createEmployee().encode(encoder);
+        customer.encode(encoder);
+        encoder.variadicUInt(1);
+        createEmployee().encode(encoder);
+        new UnsignedNumberDtos.Numbers().encode(encoder);
+        Dtos.Department.JSMITH.encode(encoder);
+        encoder.u8((byte) 0x42);
+
+        AggregateBareDecoder decoder = new AggregateBareDecoder(encoder.toByteArray());
+        Dtos.Employee.skip(decoder);
+        Dtos.Customer.skip(decoder);
+        Dtos.Person.skip(decoder);
+        NumberDtos.Numbers.skip(decoder);
+        Dtos.Department.skip(decoder);
+        assertEquals(0x42, decoder.u8());
+
+        decoder = new AggregateBareDecoder(new ByteArrayInputStream(encoder.toByteArray()));
+        Dtos.Employee.skip(decoder);
+        assertEquals(customer.toString(), Dtos.Customer.decode(decoder).toString());
+    }
+
+    @Test
+    public void testLazyView() throws IOException, BareException {
+        Dtos.Employee employee = createEmployee();
+        AggregateBareEncoder encoder = new AggregateBareEncoder();
+        encoder.string("prefix");
+        employee.encode(encoder);
+        encoder.u8((byte) 0x42);
+
+        var buffer = ByteBuffer.wrap(encoder.toByteArray());
+        var decoder = new AggregateBareDecoder(buffer);
+        decoder.skipString();
+        var view = new ByteDtos.EmployeeView(decoder);
+
+        assertEquals(Dtos.Department.ADMINISTRATION.ordinal(), view.department().ordinal());
+        assertEquals("asdf@org.com", view.email());
+        assertEquals("asdf", view.name());
+        assertEquals(2, view.height());
+        assertArrayEquals(new byte[]{(byte) 0x80}, view.metadata().get("key1"));
+        assertEquals("Villach", view.address().city);
+        assertEquals(encoder.size() - 1 - 7, view.size());
+        assertEquals(employee.toString(), view.decode().toString());
+
+        decoder.position(7 + view.size());
+        assertEquals(0x42, decoder.u8());
+
+        view.reset(ByteBuffer.wrap(encoder.toByteArray(), 7, encoder.size() - 7));
+        assertEquals("asdf", view.name());
+        assertArrayEquals(new byte[]{(byte) 0x80, 0x3}, view.arbitraryData());
     }
 
     @Test
@@ -44,8 +44,29 @@ class CodeGeneratorTest {
         assertEquals(0, compiler.run(null, System.out, System.err, "--source-path", "../codec/src/main/java", "org/example/NumberMessages.java"));
     }
 
+    @Test
+    void compileUnsignedSchema() throws Exception {
+        CodeGenerator.main(new String[]{"--unsigned-long", "src/test/resources/numbers.bare", "org.example.NumberMessages"});
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, System.out, System.err, "--source-path", "../codec/src/main/java", "org/example/NumberMessages.java"));
+    }
+
+    @Test
+    void compileByteArraySchema() throws Exception {
+        CodeGenerator.main(new String[]{"src/test/resources/schema2.bare", "--data-as-bytes", "org.example.Messages"});
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, System.out, System.err, "--source-path", "../codec/src/main/java", "org/example/Messages.java"));
+    }
+
+    @Test
+    void compileLazyViewSchema() throws Exception {
+        CodeGenerator.main(new String[]{"src/test/resources/schema2.bare", "--lazy-views", "org.example.Messages"});
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, System.out, System.err, "--source-path", "../codec/src/main/java", "org/example/Messages.java"));
+    }
+
     @Test
     void testNestedStruct() {
         assertThrows(UnsupportedOperationException.class, () -> CodeGenerator.main(new String[]{"src/test/resources/schema.bare", "Messages"}));
     }
-}
\ No newline at end of file
+}